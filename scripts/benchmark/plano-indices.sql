@@ -0,0 +1,101 @@
+-- Compara os planos das consultas quentes com e sem os índices da V2.
+--
+-- Uso (num banco DESCARTÁVEL, já migrado pelo Flyway):
+--   psql -d fidelidade_bench -f scripts/benchmark/plano-indices.sql
+--
+-- Tudo roda numa única transação desfeita no final (ROLLBACK): a massa de dados
+-- e a remoção dos índices não ficam no banco.
+
+\timing on
+BEGIN;
+
+-- ========== Massa de dados: 50 mil clientes, 1 milhão de vendas, 2 milhões de registros ==========
+
+INSERT INTO clientes (nome_completo, cpf, telefone, email, saldo_cashback, versao)
+SELECT 'Cliente ' || g, lpad(g::text, 11, '0'), '11999999999', 'c' || g || '@bench.local', 0, 0
+FROM generate_series(1, 50000) g;
+
+INSERT INTO produtos (nome_perfume, marca, volume, preco_venda)
+SELECT 'Perfume ' || g, 'Marca ' || (g % 40), (30 + (g % 5) * 30) || 'ml', 100 + g % 400
+FROM generate_series(1, 500) g;
+
+-- Partições mensais (V6) dos dois anos de vendas e das expirações correspondentes
+SELECT criar_particao_mensal(t.tabela, CAST(mes AS date))
+FROM (VALUES ('vendas'), ('itens_venda'), ('registros_cashback')) AS t (tabela),
+     generate_series(date_trunc('month', LOCALTIMESTAMP - INTERVAL '730 days'),
+                     date_trunc('month', LOCALTIMESTAMP + INTERVAL '3 months'), INTERVAL '1 month') AS mes;
+
+INSERT INTO vendas (cliente_id, data_venda, valor_total, valor_cashback_usado)
+SELECT c.base + (g % 50000), now() - (random() * interval '730 days'), 200, 0
+FROM generate_series(1, 1000000) g
+CROSS JOIN (SELECT max(id) - 49999 AS base FROM clientes) c;
+
+INSERT INTO itens_venda (id, venda_id, data_venda, produto_id, quantidade, preco_unitario, data_previsao_termino)
+SELECT nextval('itens_venda_seq'), v.id, v.data_venda, p.base + (v.id % 500), 1, 200, v.data_venda::date + 90
+FROM vendas v
+CROSS JOIN (SELECT max(id) - 499 AS base FROM produtos) p;
+
+INSERT INTO registros_cashback (id, cliente_id, valor, data_geracao, data_expiracao, utilizado, expirado, valor_utilizado, venda_id)
+SELECT nextval('registros_cashback_seq'), v.cliente_id, 10, v.data_venda::date, v.data_venda::date + 90,
+       random() < 0.8, false, 0, v.id
+FROM vendas v
+CROSS JOIN generate_series(1, 2);
+
+ANALYZE clientes, produtos, vendas, itens_venda, registros_cashback;
+
+-- ========== Consultas medidas (mesmos predicados dos repositórios) ==========
+
+\echo '########## COM ÍNDICES ##########'
+
+\echo '--- FIFO / extrato do cliente (buscarPorClienteNaoUtilizado)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM registros_cashback
+WHERE cliente_id = (SELECT max(id) - 4242 FROM clientes) AND utilizado = false AND data_expiracao > current_date
+ORDER BY data_expiracao;
+
+\echo '--- Cashback expirando (buscarCashbackExpirando)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM registros_cashback r JOIN clientes c ON c.id = r.cliente_id
+WHERE r.data_expiracao BETWEEN current_date AND current_date + 7
+  AND r.utilizado = false AND r.data_expiracao > current_date
+ORDER BY r.data_expiracao;
+
+\echo '--- Vendas do cliente (buscarPorCliente)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM vendas WHERE cliente_id = (SELECT max(id) - 4242 FROM clientes) ORDER BY data_venda DESC;
+
+\echo '--- Itens de uma página de vendas (carregarItens)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM itens_venda WHERE venda_id IN (SELECT id FROM vendas ORDER BY data_venda DESC, id DESC LIMIT 21);
+
+-- ========== Mesmas consultas sem os índices da V2 ==========
+
+DROP INDEX idx_registros_cashback_cliente_utilizado_expiracao;
+DROP INDEX idx_registros_cashback_expiracao_aberto;
+DROP INDEX idx_vendas_cliente_data_venda;
+DROP INDEX idx_itens_venda_venda;
+
+\echo '########## SEM ÍNDICES ##########'
+
+\echo '--- FIFO / extrato do cliente (buscarPorClienteNaoUtilizado)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM registros_cashback
+WHERE cliente_id = (SELECT max(id) - 4242 FROM clientes) AND utilizado = false AND data_expiracao > current_date
+ORDER BY data_expiracao;
+
+\echo '--- Cashback expirando (buscarCashbackExpirando)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM registros_cashback r JOIN clientes c ON c.id = r.cliente_id
+WHERE r.data_expiracao BETWEEN current_date AND current_date + 7
+  AND r.utilizado = false AND r.data_expiracao > current_date
+ORDER BY r.data_expiracao;
+
+\echo '--- Vendas do cliente (buscarPorCliente)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM vendas WHERE cliente_id = (SELECT max(id) - 4242 FROM clientes) ORDER BY data_venda DESC;
+
+\echo '--- Itens de uma página de vendas (carregarItens)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM itens_venda WHERE venda_id IN (SELECT id FROM vendas ORDER BY data_venda DESC, id DESC LIMIT 21);
+
+ROLLBACK;
@@ -0,0 +1,66 @@
+// Teste de carga (k6) do checkout, do dashboard e das buscas do autocomplete.
+//
+// Uso: k6 run -e BASE_URL=http://localhost:8080 -e CLIENTES=1000 -e PRODUTOS=200 scripts/carga/carga.js
+// Para comparar os dois modos (threads de plataforma x virtuais), use comparar-modos.sh.
+//
+// Espera um banco com CLIENTES clientes e PRODUTOS produtos de IDs sequenciais a partir de 1
+// (ver massa-dados.sql). As vendas criadas ficam no banco: use um banco descartável.
+
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const CLIENTES = parseInt(__ENV.CLIENTES || '1000');
+const PRODUTOS = parseInt(__ENV.PRODUTOS || '200');
+const USUARIOS = parseInt(__ENV.USUARIOS || '200');
+const DURACAO = __ENV.DURACAO || '2m';
+
+const TERMOS = ['ana', 'mar', 'sil', 'joa', 'per', 'cha', 'dio', 'lan'];
+
+export const options = {
+    scenarios: {
+        checkout: {
+            executor: 'constant-vus', exec: 'checkout',
+            vus: Math.ceil(USUARIOS * 0.3), duration: DURACAO,
+        },
+        navegacao: {
+            executor: 'constant-vus', exec: 'navegacao',
+            vus: Math.floor(USUARIOS * 0.7), duration: DURACAO,
+        },
+    },
+    thresholds: {
+        'http_req_failed': ['rate<0.01'],
+        'http_req_duration{cenario:checkout}': ['p(95)<1000'],
+        'http_req_duration{cenario:navegacao}': ['p(95)<500'],
+    },
+};
+
+function aleatorio(maximo) {
+    return 1 + Math.floor(Math.random() * maximo);
+}
+
+export function checkout() {
+    const itens = 1 + Math.floor(Math.random() * 3);
+    const corpo = [`clienteId=${aleatorio(CLIENTES)}`, 'valorCashbackUsado=0'];
+    for (let i = 0; i < itens; i++) {
+        corpo.push(`produtoIds=${aleatorio(PRODUTOS)}`, `quantidades=${aleatorio(2)}`);
+    }
+
+    const resposta = http.post(`${BASE_URL}/vendas/finalizar`, corpo.join('&'), {
+        headers: { 'Content-Type': 'application/x-www-form-urlencoded' },
+        redirects: 0,
+        tags: { cenario: 'checkout' },
+    });
+    // Sucesso e erro de negócio redirecionam (302); 5xx indica falha (ex: pool esgotado)
+    check(resposta, { 'venda processada': (r) => r.status === 302 });
+}
+
+export function navegacao() {
+    const tags = { tags: { cenario: 'navegacao' } };
+    const termo = TERMOS[Math.floor(Math.random() * TERMOS.length)];
+
+    check(http.get(`${BASE_URL}/dashboard`, tags), { 'dashboard': (r) => r.status === 200 });
+    check(http.get(`${BASE_URL}/clientes/api/buscar?termo=${termo}`, tags), { 'busca cliente': (r) => r.status === 200 });
+    check(http.get(`${BASE_URL}/produtos/api/buscar?termo=${termo}`, tags), { 'busca produto': (r) => r.status === 200 });
+    check(http.get(`${BASE_URL}/vendas`, tags), { 'lista vendas': (r) => r.status === 200 });
+}
@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Compara o modo padrão (threads de plataforma) com o perfil "virtual" (threads virtuais, Java 21)
+# rodando o mesmo teste de carga (carga.js) contra cada um.
+#
+# Requisitos: JDK 21, k6 e um PostgreSQL descartável com a massa de massa-dados.sql.
+# Uso: SPRING_DATASOURCE_URL=jdbc:postgresql://localhost:5432/fidelidade_carga scripts/carga/comparar-modos.sh
+#
+# Os resumos do k6 ficam em target/carga/<modo>.json. As vendas criadas ficam no banco,
+# então recrie a massa entre execuções para comparar rodadas equivalentes.
+set -euo pipefail
+
+cd "$(dirname "$0")/../.."
+mvn -B -q clean package -DskipTests
+mkdir -p target/carga
+
+rodar() {
+    local modo="$1" perfis="$2"
+    echo "== Modo: $modo (perfis: ${perfis:-nenhum})"
+    SPRING_PROFILES_ACTIVE="$perfis" java -jar target/fidelidade-1.0.0.jar > "target/carga/$modo.log" 2>&1 &
+    local pid=$!
+    trap "kill $pid 2>/dev/null || true" EXIT
+
+    until curl -sf http://localhost:8080/actuator/health > /dev/null; do sleep 1; done
+
+    k6 run --summary-export "target/carga/$modo.json" scripts/carga/carga.js || true
+    curl -s http://localhost:8080/actuator/metrics/hikaricp.connections.pending > "target/carga/$modo-hikari.json"
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    trap - EXIT
+}
+
+rodar plataforma ""
+rodar virtual "virtual"
+
+echo "Resumos em target/carga/ (compare http_req_duration p(95) e http_reqs)"
@@ -0,0 +1,19 @@
+-- Massa de dados para o teste de carga (carga.js): 1.000 clientes e 200 produtos.
+--
+-- Uso (num banco DESCARTÁVEL, já migrado pelo Flyway, de preferência vazio):
+--   psql -d fidelidade_carga -f scripts/carga/massa-dados.sql
+--
+-- O teste sorteia IDs de 1 a N, então as tabelas devem começar vazias.
+
+INSERT INTO clientes (nome_completo, cpf, telefone, email, saldo_cashback, versao, texto_busca)
+SELECT 'Cliente ' || (ARRAY['Ana', 'Maria', 'Silva', 'João', 'Pereira'])[1 + g % 5] || ' ' || g,
+       lpad(g::text, 11, '0'), '11999999999', 'c' || g || '@carga.local', 0, 0,
+       lower('cliente ' || (ARRAY['ana', 'maria', 'silva', 'joao', 'pereira'])[1 + g % 5] || ' ' || g || ' ' || lpad(g::text, 11, '0'))
+FROM generate_series(1, 1000) g;
+
+INSERT INTO produtos (nome_perfume, marca, volume, preco_venda, texto_busca, volume_ml, duracao_estimada_dias)
+SELECT 'Perfume ' || g, (ARRAY['Chanel', 'Dior', 'Lancôme', 'Perfumaria'])[1 + g % 4],
+       (ARRAY['30ml', '50ml', '100ml', '150ml'])[1 + g % 4], 100 + (g % 20) * 25,
+       lower('perfume ' || g || ' ' || (ARRAY['chanel', 'dior', 'lancome', 'perfumaria'])[1 + g % 4]),
+       (ARRAY[30, 50, 100, 150])[1 + g % 4], (ARRAY[30, 60, 90, 120])[1 + g % 4]
+FROM generate_series(1, 200) g;
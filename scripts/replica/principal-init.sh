@@ -0,0 +1,9 @@
+#!/usr/bin/env bash
+# Usuário de replicação usado pela réplica do docker-compose.yml
+set -euo pipefail
+
+psql -v ON_ERROR_STOP=1 -U "$POSTGRES_USER" -d "$POSTGRES_DB" <<-SQL
+    CREATE ROLE replicacao WITH REPLICATION LOGIN PASSWORD 'replicacao';
+SQL
+
+echo "host replication replicacao all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,47 @@
+package com.bagatelle.fidelidade.benchmark;
+
+import com.bagatelle.fidelidade.model.Venda;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totais da venda (Venda.calcularSubtotal / calcularValorFinal), chamados
+ * nas listagens e no detalhe de cada venda.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CalculoVendaBenchmark {
+
+    @Param({"1", "5", "20"})
+    private int itens;
+
+    private Venda venda;
+
+    @Setup
+    public void preparar() {
+        GeradorDados gerador = new GeradorDados();
+        venda = Venda.builder().valorCashbackUsado(new BigDecimal("10.00")).build();
+        var catalogo = gerador.catalogo(50);
+        for (int i = 0; i < itens; i++) {
+            // Reaproveita os itens de vendas sorteadas até chegar ao tamanho pedido
+            var origem = gerador.venda(catalogo).getItens().get(0);
+            origem.setVenda(null);
+            venda.adicionarItem(origem);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal calcularSubtotal() {
+        return venda.calcularSubtotal();
+    }
+
+    @Benchmark
+    public BigDecimal calcularValorFinal() {
+        return venda.calcularValorFinal();
+    }
+}
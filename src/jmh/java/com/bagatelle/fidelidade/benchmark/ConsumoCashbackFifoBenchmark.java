@@ -0,0 +1,118 @@
+package com.bagatelle.fidelidade.benchmark;
+
+import com.bagatelle.fidelidade.model.Cliente;
+import com.bagatelle.fidelidade.model.RegistroCashback;
+import com.bagatelle.fidelidade.repository.ClienteRepository;
+import com.bagatelle.fidelidade.repository.RegistroCashbackRepository;
+import com.bagatelle.fidelidade.repository.RegistroCashbackRepository.AlocacaoCashback;
+import com.bagatelle.fidelidade.service.CashbackService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumo FIFO dos registros de cashback em aberto de um cliente, no banco (H2, ver ContextoH2).
+ * Clientes fiéis acumulam centenas de registros pequenos; o resgate usa metade do saldo.
+ * Compara o laço antigo (carrega as entidades, consome em Java e grava no flush) com
+ * CashbackService.consumirFifo (alocação numa consulta com soma acumulada e um lote JDBC).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConsumoCashbackFifoBenchmark {
+
+    // Consulta do laço antigo, que só o benchmark ainda usa
+    private static final String CONSULTA_REGISTROS_ABERTOS =
+            "SELECT r FROM RegistroCashback r " +
+            "WHERE r.cliente.id = :clienteId " +
+            "AND r.utilizado = false " +
+            "AND r.dataExpiracao > :hoje " +
+            "ORDER BY r.dataExpiracao ASC";
+
+    @Param({"10", "100", "500"})
+    private int registrosAbertos;
+
+    private ConfigurableApplicationContext contexto;
+    private CashbackService cashbackService;
+    private RegistroCashbackRepository registroRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+
+    private Long clienteId;
+    private BigDecimal valorResgate;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoH2.iniciar("fifo" + registrosAbertos);
+        cashbackService = contexto.getBean(CashbackService.class);
+        registroRepository = contexto.getBean(RegistroCashbackRepository.class);
+        entityManager = contexto.getBean(EntityManager.class);
+        transactionTemplate = contexto.getBean(TransactionTemplate.class);
+        jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+
+        List<RegistroCashback> registros = new GeradorDados().registrosAbertos(registrosAbertos);
+        BigDecimal saldo = registros.stream()
+                .map(RegistroCashback::getValor)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        valorResgate = saldo.divide(BigDecimal.valueOf(2), 2, RoundingMode.DOWN);
+
+        Cliente cliente = contexto.getBean(ClienteRepository.class).save(new GeradorDados().cliente(1, saldo));
+        clienteId = cliente.getId();
+        for (RegistroCashback registro : registros) {
+            registro.setId(null);
+            registro.setCliente(cliente);
+        }
+        registroRepository.saveAll(registros);
+    }
+
+    // O consumo altera os registros, então cada chamada parte dos registros intactos
+    @Setup(Level.Invocation)
+    public void restaurar() {
+        jdbcTemplate.update("UPDATE registros_cashback SET valor_utilizado = 0, utilizado = false WHERE cliente_id = ?",
+                clienteId);
+    }
+
+    @Benchmark
+    public BigDecimal lacoPorRegistro() {
+        return transactionTemplate.execute(status -> {
+            List<RegistroCashback> registros = entityManager.createQuery(CONSULTA_REGISTROS_ABERTOS, RegistroCashback.class)
+                    .setParameter("clienteId", clienteId)
+                    .setParameter("hoje", LocalDate.now())
+                    .getResultList();
+            BigDecimal valorRestante = valorResgate;
+            for (RegistroCashback registro : registros) {
+                if (valorRestante.compareTo(BigDecimal.ZERO) <= 0) {
+                    break;
+                }
+                BigDecimal valorAUtilizar = valorRestante.min(registro.getValorDisponivel());
+                registro.setValorUtilizado(registro.getValorUtilizado().add(valorAUtilizar));
+                if (registro.getValorUtilizado().compareTo(registro.getValor()) >= 0) {
+                    registro.setUtilizado(true);
+                }
+                valorRestante = valorRestante.subtract(valorAUtilizar);
+            }
+            return valorRestante;
+        });
+    }
+
+    @Benchmark
+    public List<AlocacaoCashback> alocacaoEmLote() {
+        return cashbackService.consumirFifo(clienteId, valorResgate, LocalDate.now());
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+}
@@ -0,0 +1,40 @@
+package com.bagatelle.fidelidade.benchmark;
+
+import com.bagatelle.fidelidade.FidelidadeApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Sobe o contexto Spring completo sobre H2 em memória no modo PostgreSQL, para os
+ * benchmarks que passam pelo banco. O schema é gerado pelo Hibernate em vez do Flyway.
+ */
+public final class ContextoH2 {
+
+    private ContextoH2() {
+    }
+
+    public static ConfigurableApplicationContext iniciar(String banco) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(FidelidadeApplication.class)
+                .web(WebApplicationType.NONE)
+                // Argumentos de linha de comando têm precedência sobre o application.properties
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:" + banco + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.flyway.enabled=false",
+                        "--fidelidade.indices.verificar=false",
+                        "--fidelidade.particoes.manutencao=false",
+                        "--fidelidade.indicadores.incremental=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.level.com.bagatelle.fidelidade=WARN");
+    }
+}
@@ -0,0 +1,138 @@
+package com.bagatelle.fidelidade.benchmark;
+
+import com.bagatelle.fidelidade.model.Cliente;
+import com.bagatelle.fidelidade.model.ItemVenda;
+import com.bagatelle.fidelidade.model.ModeloDuracao;
+import com.bagatelle.fidelidade.model.Produto;
+import com.bagatelle.fidelidade.model.RegistroCashback;
+import com.bagatelle.fidelidade.model.Venda;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gera massas de dados reproduzíveis (semente fixa) para os benchmarks.
+ * As proporções imitam o movimento da loja: frascos de 50ml e 100ml dominam,
+ * a maioria das vendas tem 1 ou 2 itens e os registros de cashback são pequenos.
+ */
+public final class GeradorDados {
+
+    public static final long SEMENTE_PADRAO = 42L;
+
+    // Volumes repetidos pesam mais no sorteio
+    private static final String[] VOLUMES = {
+            "30ml", "50ml", "50ml", "50ml", "75ml", "100ml", "100ml", "100ml", "100 ml",
+            "120ml", "150ml", "200ml", "Kit 2x100ml", "3.4oz", "Kit 3un"
+    };
+
+    private static final int[] ITENS_POR_VENDA = {1, 1, 1, 1, 2, 2, 2, 3, 4, 6};
+
+    private static final String[] MARCAS = {
+            "Chanel", "Dior", "Lancôme", "Givenchy", "Boticário", "Natura", "Carolina Herrera", "Paco Rabanne"
+    };
+
+    private final Random random;
+
+    public GeradorDados(long semente) {
+        this.random = new Random(semente);
+    }
+
+    public GeradorDados() {
+        this(SEMENTE_PADRAO);
+    }
+
+    // Volume em ml e duração preenchidos como o ProdutoService faz ao salvar
+    public Produto produto(Long id) {
+        String marca = MARCAS[random.nextInt(MARCAS.length)];
+        String volume = VOLUMES[random.nextInt(VOLUMES.length)];
+        int volumeMl = Produto.interpretarVolumeMl(volume);
+        return Produto.builder()
+                .id(id)
+                .nomePerfume("Perfume " + (id != null ? id : random.nextInt(10_000)))
+                .marca(marca)
+                .volume(volume)
+                .volumeMl(volumeMl)
+                .duracaoEstimadaDias(ModeloDuracao.PADRAO.duracaoDias(marca, volumeMl))
+                .precoVenda(valor(80, 900))
+                .build();
+    }
+
+    public List<Produto> catalogo(int quantidade) {
+        List<Produto> produtos = new ArrayList<>(quantidade);
+        for (long i = 1; i <= quantidade; i++) {
+            produtos.add(produto(i));
+        }
+        return produtos;
+    }
+
+    public Cliente cliente(int sequencial, BigDecimal saldoCashback) {
+        return Cliente.builder()
+                .nomeCompleto("Cliente Benchmark " + sequencial)
+                .cpf(String.format("%011d", sequencial))
+                .telefone("119" + String.format("%08d", sequencial % 100_000_000))
+                .email("cliente" + sequencial + "@bench.local")
+                .saldoCashback(saldoCashback)
+                .build();
+    }
+
+    /**
+     * Venda com itens sorteados do catálogo, feita em algum dia do último ano.
+     */
+    public Venda venda(List<Produto> catalogo) {
+        Venda venda = Venda.builder()
+                .dataVenda(LocalDateTime.now().minusDays(random.nextInt(365)))
+                .valorCashbackUsado(random.nextInt(5) == 0 ? valor(1, 30) : BigDecimal.ZERO)
+                .build();
+
+        int itens = ITENS_POR_VENDA[random.nextInt(ITENS_POR_VENDA.length)];
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < itens; i++) {
+            Produto produto = catalogo.get(random.nextInt(catalogo.size()));
+            ItemVenda item = ItemVenda.builder()
+                    .produto(produto)
+                    .quantidade(random.nextInt(4) == 0 ? 2 : 1)
+                    .precoUnitario(produto.getPrecoVenda())
+                    .build();
+            venda.adicionarItem(item);
+            total = total.add(item.calcularSubtotal());
+        }
+        venda.setValorTotal(total);
+        return venda;
+    }
+
+    public List<Venda> vendas(List<Produto> catalogo, int quantidade) {
+        List<Venda> vendas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            vendas.add(venda(catalogo));
+        }
+        return vendas;
+    }
+
+    /**
+     * Registros de cashback em aberto, do mais antigo para o mais novo (ordem do FIFO).
+     */
+    public List<RegistroCashback> registrosAbertos(int quantidade) {
+        List<RegistroCashback> registros = new ArrayList<>(quantidade);
+        LocalDate hoje = LocalDate.now();
+        for (int i = 0; i < quantidade; i++) {
+            LocalDate geracao = hoje.minusDays(89 - (89L * i / Math.max(quantidade, 1)));
+            registros.add(RegistroCashback.builder()
+                    .id((long) i + 1)
+                    .valor(valor(1, 30))
+                    .dataGeracao(geracao)
+                    .dataExpiracao(geracao.plusDays(90))
+                    .build());
+        }
+        return registros;
+    }
+
+    private BigDecimal valor(int minimo, int maximo) {
+        double bruto = minimo + random.nextDouble() * (maximo - minimo);
+        return BigDecimal.valueOf(bruto).setScale(2, RoundingMode.HALF_UP);
+    }
+}
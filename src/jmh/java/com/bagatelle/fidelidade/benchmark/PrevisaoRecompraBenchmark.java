@@ -0,0 +1,54 @@
+package com.bagatelle.fidelidade.benchmark;
+
+import com.bagatelle.fidelidade.model.ItemVenda;
+import com.bagatelle.fidelidade.model.Venda;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Previsão de término dos itens vendidos (ItemVenda.atualizarPrevisaoTermino) e a
+ * janela de recompra (-30/+15 dias) sobre um ano de vendas com a mistura real de itens.
+ * É o cálculo que substituiu a antiga varredura isHoraDeRecomprar no dashboard.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PrevisaoRecompraBenchmark {
+
+    @Param({"1000", "10000"})
+    private int vendas;
+
+    private List<Venda> historico;
+
+    @Setup
+    public void preparar() {
+        GeradorDados gerador = new GeradorDados();
+        historico = gerador.vendas(gerador.catalogo(300), vendas);
+    }
+
+    @Benchmark
+    public int vendasNaJanelaDeRecompra() {
+        LocalDate hoje = LocalDate.now();
+        LocalDate inicioJanela = hoje.minusDays(30);
+        LocalDate fimJanela = hoje.plusDays(15);
+
+        int sugestoes = 0;
+        for (Venda venda : historico) {
+            LocalDate dataVenda = venda.getDataVenda().toLocalDate();
+            for (ItemVenda item : venda.getItens()) {
+                item.atualizarPrevisaoTermino(dataVenda);
+                LocalDate previsao = item.getDataPrevisaoTermino();
+                if (previsao.isAfter(inicioJanela) && previsao.isBefore(fimJanela)) {
+                    sugestoes++;
+                    break;
+                }
+            }
+        }
+        return sugestoes;
+    }
+}
@@ -0,0 +1,108 @@
+package com.bagatelle.fidelidade.benchmark;
+
+import com.bagatelle.fidelidade.model.Cliente;
+import com.bagatelle.fidelidade.model.ItemVenda;
+import com.bagatelle.fidelidade.model.Produto;
+import com.bagatelle.fidelidade.model.RegistroCashback;
+import com.bagatelle.fidelidade.repository.ClienteRepository;
+import com.bagatelle.fidelidade.repository.ProdutoRepository;
+import com.bagatelle.fidelidade.repository.RegistroCashbackRepository;
+import com.bagatelle.fidelidade.service.VendaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout de ponta a ponta (VendaService.registrarVenda) com o contexto Spring completo,
+ * sobre H2 em memória no modo PostgreSQL (ContextoH2). As consultas do checkout são JPQL
+ * ou SQL portável, então rodam iguais no H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RegistrarVendaBenchmark {
+
+    private static final int CLIENTES = 1_000;
+    private static final int PRODUTOS = 200;
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000.00");
+
+    private ConfigurableApplicationContext contexto;
+    private VendaService vendaService;
+    private List<Long> clienteIds;
+    private List<Long> produtoIds;
+    private Random random;
+    private int vendasRegistradas;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoH2.iniciar("bench");
+
+        vendaService = contexto.getBean(VendaService.class);
+        popularBanco();
+        random = new Random(GeradorDados.SEMENTE_PADRAO);
+    }
+
+    private void popularBanco() {
+        GeradorDados gerador = new GeradorDados();
+        ProdutoRepository produtoRepository = contexto.getBean(ProdutoRepository.class);
+        ClienteRepository clienteRepository = contexto.getBean(ClienteRepository.class);
+        RegistroCashbackRepository registroRepository = contexto.getBean(RegistroCashbackRepository.class);
+
+        List<Produto> produtos = new ArrayList<>();
+        for (int i = 0; i < PRODUTOS; i++) {
+            produtos.add(gerador.produto(null));
+        }
+        produtoIds = produtoRepository.saveAll(produtos).stream().map(Produto::getId).toList();
+
+        List<Cliente> clientes = new ArrayList<>();
+        for (int i = 1; i <= CLIENTES; i++) {
+            clientes.add(gerador.cliente(i, SALDO_INICIAL));
+        }
+        clientes = clienteRepository.saveAll(clientes);
+        clienteIds = clientes.stream().map(Cliente::getId).toList();
+
+        // Saldo inicial lastreado por um registro em aberto, como um cliente real
+        List<RegistroCashback> registros = new ArrayList<>();
+        for (Cliente cliente : clientes) {
+            registros.add(RegistroCashback.builder()
+                    .cliente(cliente)
+                    .valor(SALDO_INICIAL)
+                    .dataGeracao(LocalDate.now())
+                    .dataExpiracao(LocalDate.now().plusDays(90))
+                    .build());
+        }
+        registroRepository.saveAll(registros);
+    }
+
+    @Benchmark
+    public Long registrarVenda() {
+        Long clienteId = clienteIds.get(random.nextInt(clienteIds.size()));
+
+        int quantidadeItens = 1 + random.nextInt(5);
+        List<ItemVenda> itens = new ArrayList<>(quantidadeItens);
+        for (int i = 0; i < quantidadeItens; i++) {
+            itens.add(ItemVenda.builder()
+                    .produto(Produto.builder().id(produtoIds.get(random.nextInt(produtoIds.size()))).build())
+                    .quantidade(1 + random.nextInt(2))
+                    .build());
+        }
+
+        // Uma a cada quatro vendas resgata um pouco de cashback
+        BigDecimal cashbackUsado = (vendasRegistradas++ % 4 == 0) ? new BigDecimal("1.00") : BigDecimal.ZERO;
+
+        return vendaService.registrarVenda(clienteId, itens, cashbackUsado).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+}
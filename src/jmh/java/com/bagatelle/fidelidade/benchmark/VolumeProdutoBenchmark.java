@@ -0,0 +1,63 @@
+package com.bagatelle.fidelidade.benchmark;
+
+import com.bagatelle.fidelidade.model.ModeloDuracao;
+import com.bagatelle.fidelidade.model.Produto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Volume e duração do frasco, lidos para cada item vendido ao calcular a previsão de recompra.
+ * getVolumeNumerico e calcularDuracaoEstimadaDias leem os campos já calculados ao salvar;
+ * interpretarVolumeMl e modeloDuracao medem o custo pago uma vez por gravação do produto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VolumeProdutoBenchmark {
+
+    private static final int PRODUTOS = 1_000;
+
+    private List<Produto> catalogo;
+
+    @Setup
+    public void preparar() {
+        catalogo = new GeradorDados().catalogo(PRODUTOS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUTOS)
+    public void getVolumeNumerico(Blackhole bh) {
+        for (Produto produto : catalogo) {
+            bh.consume(produto.getVolumeNumerico());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUTOS)
+    public void calcularDuracaoEstimadaDias(Blackhole bh) {
+        for (Produto produto : catalogo) {
+            bh.consume(produto.calcularDuracaoEstimadaDias());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUTOS)
+    public void interpretarVolumeMl(Blackhole bh) {
+        for (Produto produto : catalogo) {
+            bh.consume(Produto.interpretarVolumeMl(produto.getVolume()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUTOS)
+    public void modeloDuracao(Blackhole bh) {
+        for (Produto produto : catalogo) {
+            bh.consume(ModeloDuracao.PADRAO.duracaoDias(produto.getMarca(), produto.getVolumeMl()));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.bagatelle.fidelidade.config;
+
+import com.bagatelle.fidelidade.service.VersaoDadosService;
+import com.bagatelle.fidelidade.service.VersaoDadosService.Area;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.support.SessionFlashMapManager;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Cache das telas de leitura que os terminais ficam consultando (listas e dashboard).
+ * A página renderizada é guardada com as versões dos dados de que depende (VersaoDadosService)
+ * e o ETag/Last-Modified saem das mesmas versões: sem escrita nova, o navegador recebe 304
+ * e o servidor não consulta o banco nem renderiza o template.
+ *
+ * A chave inclui uma janela de tempo (fidelidade.cache-paginas.validade-segundos), que limita
+ * o tempo de dado antigo quando a escrita vem de outra instância ou depende só da data
+ * (cashback que passa a expirar, janela de recompra).
+ */
+@Component
+public class CachePaginasFilter extends OncePerRequestFilter {
+
+    private static final Map<String, Area[]> PAGINAS = Map.of(
+            "/produtos", new Area[]{Area.CATALOGO},
+            "/clientes", new Area[]{Area.CLIENTES, Area.CASHBACK},
+            "/dashboard/cashback-expirando", new Area[]{Area.CASHBACK, Area.CLIENTES},
+            "/dashboard/sugestoes-recompra", new Area[]{Area.VENDAS, Area.CLIENTES, Area.CATALOGO});
+
+    // Mensagens de sucesso/erro depois de um redirect ficam na sessão até a próxima página
+    private static final String ATRIBUTO_FLASH = SessionFlashMapManager.class.getName() + ".FLASH_MAPS";
+
+    private final VersaoDadosService versaoDadosService;
+    private final boolean habilitado;
+    private final long validadeMs;
+    private final long fixarPrimarioMs;
+    private final Cache<String, PaginaRenderizada> paginas;
+
+    // Distingue ETags de execuções diferentes, já que os contadores recomeçam do zero
+    private final String instancia = Long.toString(System.currentTimeMillis(), 36);
+
+    public CachePaginasFilter(VersaoDadosService versaoDadosService,
+                              MeterRegistry meterRegistry,
+                              @Value("${fidelidade.cache-paginas.habilitado:true}") boolean habilitado,
+                              @Value("${fidelidade.cache-paginas.validade-segundos:60}") long validadeSegundos,
+                              @Value("${fidelidade.cache-paginas.tamanho-maximo-mb:32}") long tamanhoMaximoMb,
+                              @Value("${fidelidade.replicas.fixar-primario-segundos:5}") long fixarPrimarioSegundos) {
+        this.versaoDadosService = versaoDadosService;
+        this.habilitado = habilitado;
+        this.validadeMs = Duration.ofSeconds(validadeSegundos).toMillis();
+        this.fixarPrimarioMs = Duration.ofSeconds(fixarPrimarioSegundos).toMillis();
+        this.paginas = Caffeine.newBuilder()
+                .maximumWeight(tamanhoMaximoMb * 1024 * 1024)
+                .weigher((String chave, PaginaRenderizada pagina) -> pagina.corpo().length)
+                .expireAfterWrite(Duration.ofSeconds(validadeSegundos))
+                .recordStats()
+                .build();
+        // Mesmas chaves de tag das métricas dos caches do Spring (cache, cache.manager, name): o Prometheus
+        // rejeita métricas de mesmo nome com chaves diferentes, e as do catálogo sumiriam do /actuator/prometheus
+        CaffeineCacheMetrics.monitor(meterRegistry, paginas, "paginas",
+                Tags.of("cache.manager", "cachePaginas", "name", "paginas"));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !habilitado || !"GET".equals(request.getMethod()) || !PAGINAS.containsKey(caminho(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (temMensagemFlash(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Versões lidas antes de consultar o banco: a página gerada é no mínimo tão nova quanto elas
+        long janela = System.currentTimeMillis() / validadeMs;
+        long ultimaAlteracao = janela * validadeMs;
+        long ultimaEscrita = 0;
+        StringBuilder versao = new StringBuilder(instancia).append('-').append(janela);
+        for (Area area : PAGINAS.get(caminho(request))) {
+            versao.append('-').append(versaoDadosService.versao(area));
+            ultimaEscrita = Math.max(ultimaEscrita, versaoDadosService.alteradoEm(area).toEpochMilli());
+        }
+        ultimaAlteracao = Math.max(ultimaAlteracao, ultimaEscrita);
+
+        String etag = "W/\"" + versao + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag, ultimaAlteracao)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        String chave = request.getRequestURI() + "?" + request.getQueryString() + "#" + versao;
+        PaginaRenderizada pagina = paginas.getIfPresent(chave);
+        if (pagina != null) {
+            response.setContentType(pagina.tipo());
+            response.setContentLength(pagina.corpo().length);
+            response.getOutputStream().write(pagina.corpo());
+            return;
+        }
+
+        // Logo após uma escrita, uma réplica de leitura atrasada geraria a página antiga sob a versão nova
+        boolean escritaRecente = System.currentTimeMillis() - ultimaEscrita < fixarPrimarioMs;
+        boolean primarioAnterior = escritaRecente ? RoteamentoLeitura.fixarPrimario() : RoteamentoLeitura.primarioFixado();
+        ContentCachingResponseWrapper resposta = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, resposta);
+            if (resposta.getStatus() == HttpServletResponse.SC_OK) {
+                paginas.put(chave, new PaginaRenderizada(resposta.getContentType(), resposta.getContentAsByteArray()));
+            }
+        } finally {
+            RoteamentoLeitura.restaurar(primarioAnterior);
+            resposta.copyBodyToResponse();
+        }
+    }
+
+    private static String caminho(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean temMensagemFlash(HttpServletRequest request) {
+        HttpSession sessao = request.getSession(false);
+        return sessao != null
+                && sessao.getAttribute(ATRIBUTO_FLASH) instanceof Collection<?> flash
+                && !flash.isEmpty();
+    }
+
+    private record PaginaRenderizada(String tipo, byte[] corpo) {
+    }
+}
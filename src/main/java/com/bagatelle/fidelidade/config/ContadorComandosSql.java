@@ -0,0 +1,38 @@
+package com.bagatelle.fidelidade.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Conta os comandos SQL preparados pelo Hibernate na thread atual.
+ * MetricasSqlFilter zera o contador no início de cada requisição e publica o total no fim.
+ * Consultas feitas em outras threads (ex: resumo do dashboard) não entram na conta.
+ */
+@Component
+public class ContadorComandosSql implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<int[]> CONTADOR = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        CONTADOR.get()[0]++;
+        return sql;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    public void zerar() {
+        CONTADOR.get()[0] = 0;
+    }
+
+    public int total() {
+        return CONTADOR.get()[0];
+    }
+}
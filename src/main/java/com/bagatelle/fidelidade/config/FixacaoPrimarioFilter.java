@@ -0,0 +1,70 @@
+package com.bagatelle.fidelidade.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Ler o que acabou de gravar: depois de um POST (venda, cadastro, importação...), as requisições
+ * do mesmo navegador leem do principal por alguns segundos, mesmo nas transações somente leitura.
+ * Cobre o redirect para a tela de detalhes logo após registrarVenda, antes de a réplica receber a venda.
+ * O prazo vai num cookie, para valer em qualquer instância da aplicação.
+ */
+public class FixacaoPrimarioFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "fidelidade-primario";
+
+    private final long janelaMs;
+
+    public FixacaoPrimarioFilter(long janelaSegundos) {
+        this.janelaMs = janelaSegundos * 1000;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean escrita = !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+        if (escrita) {
+            // Antes da cadeia: o redirect do controller já envia a resposta
+            Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis() + janelaMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, janelaMs / 1000));
+            response.addCookie(cookie);
+        }
+
+        if (!escrita && !dentroDaJanela(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean anterior = RoteamentoLeitura.fixarPrimario();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RoteamentoLeitura.restaurar(anterior);
+        }
+    }
+
+    private static boolean dentroDaJanela(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,35 @@
+package com.bagatelle.fidelidade.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Grava e lê datas via JdbcTemplate do mesmo jeito que o Hibernate (hibernate.jdbc.time_zone).
+ * Sem isso, uma data gravada por JDBC e lida pela entidade (ou gravada pela entidade e lida
+ * por JDBC) sai deslocada quando o fuso da JVM é diferente do configurado para o banco.
+ */
+@Component
+public class FusoHorarioJdbc {
+
+    private final TimeZone fuso;
+
+    public FusoHorarioJdbc(@Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}") String fuso) {
+        this.fuso = fuso.isBlank() ? TimeZone.getDefault() : TimeZone.getTimeZone(fuso);
+    }
+
+    public void definir(PreparedStatement ps, int indice, LocalDateTime valor) throws SQLException {
+        ps.setTimestamp(indice, Timestamp.valueOf(valor), calendario());
+    }
+
+    // Calendar não é thread-safe: um novo a cada uso
+    public Calendar calendario() {
+        return Calendar.getInstance(fuso);
+    }
+}
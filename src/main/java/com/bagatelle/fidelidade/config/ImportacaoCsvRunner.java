@@ -0,0 +1,76 @@
+package com.bagatelle.fidelidade.config;
+
+import com.bagatelle.fidelidade.dto.ErroImportacaoDTO;
+import com.bagatelle.fidelidade.dto.ResultadoImportacaoDTO;
+import com.bagatelle.fidelidade.service.ImportacaoService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Importação pela linha de comando, para arquivos grandes demais para o upload:
+ * <pre>
+ * java -jar fidelidade.jar --spring.main.web-application-type=none \
+ *      --importar.clientes=clientes.csv --importar.produtos=produtos.csv
+ * </pre>
+ * Importa os arquivos informados, registra o resultado no log e encerra a aplicação.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportacaoCsvRunner implements ApplicationRunner {
+
+    private static final int ERROS_NO_LOG = 50;
+
+    private final ImportacaoService importacaoService;
+    private final ConfigurableApplicationContext contexto;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        List<String> clientes = args.getOptionValues("importar.clientes");
+        List<String> produtos = args.getOptionValues("importar.produtos");
+        if (clientes == null && produtos == null) {
+            return;
+        }
+
+        if (clientes != null) {
+            importar(clientes, importacaoService::importarClientes);
+        }
+        if (produtos != null) {
+            importar(produtos, importacaoService::importarProdutos);
+        }
+
+        System.exit(SpringApplication.exit(contexto));
+    }
+
+    private void importar(List<String> arquivos, Function<Reader, ResultadoImportacaoDTO> importacao) throws IOException {
+        for (String arquivo : arquivos) {
+            log.info("Importando {}", arquivo);
+            ResultadoImportacaoDTO resultado;
+            try (Reader reader = Files.newBufferedReader(Path.of(arquivo), StandardCharsets.UTF_8)) {
+                resultado = importacao.apply(reader);
+            } catch (IllegalArgumentException e) {
+                resultado = ResultadoImportacaoDTO.falha(e.getMessage());
+            }
+
+            log.info("{}: {} linha(s) lida(s), {} importada(s), {} rejeitada(s)", arquivo,
+                    resultado.getLinhasLidas(), resultado.getImportados(), resultado.getTotalErros());
+            resultado.getErros().stream()
+                    .limit(ERROS_NO_LOG)
+                    .map(ErroImportacaoDTO::toString)
+                    .forEach(erro -> log.warn("{}: {}", arquivo, erro));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.bagatelle.fidelidade.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Publica quantos comandos SQL cada requisição executou (fidelidade.sql.comandos.requisicao),
+ * por rota. Ajuda a achar N+1 e telas que consultam demais a partir dos dados de produção.
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricasSqlFilter extends OncePerRequestFilter {
+
+    private final ContadorComandosSql contadorComandosSql;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        contadorComandosSql.zerar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Só requisições atendidas por um controller (ignora arquivos estáticos e 404)
+            Object rota = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (rota != null) {
+                DistributionSummary.builder("fidelidade.sql.comandos.requisicao")
+                        .description("Comandos SQL executados por requisição")
+                        .baseUnit("comandos")
+                        .tag("uri", rota.toString())
+                        .tag("method", request.getMethod())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(contadorComandosSql.total());
+            }
+        }
+    }
+}
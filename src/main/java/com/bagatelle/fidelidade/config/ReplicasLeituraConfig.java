@@ -0,0 +1,94 @@
+package com.bagatelle.fidelidade.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de leitura do PostgreSQL (fidelidade.replicas.urls, separadas por vírgula).
+ * Transações @Transactional(readOnly = true) — dashboard, listagens, autocomplete, histórico do
+ * cliente — pegam a conexão numa réplica; as demais, no principal (spring.datasource.*).
+ *
+ * O DataSource da aplicação é um LazyConnectionDataSourceProxy: a conexão só é obtida no primeiro
+ * comando, depois que o Hibernate marcou a transação como somente leitura, e aí vem do RoteadorReplicas.
+ * Réplica atrasada além de fidelidade.replicas.atraso-maximo-segundos sai do rodízio até se atualizar.
+ * Sem fidelidade.replicas.urls esta configuração não é carregada e o Spring Boot monta o pool único de sempre.
+ */
+@Configuration
+@ConditionalOnExpression("!'${fidelidade.replicas.urls:}'.isBlank()")
+public class ReplicasLeituraConfig {
+
+    private static final String CONSULTA_ATRASO_POSTGRES = "SELECT COALESCE(CASE "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END, 0)";
+
+    @Bean(destroyMethod = "close")
+    public RoteadorReplicas roteadorReplicas(DataSourceProperties propriedades,
+                                             Environment environment,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${fidelidade.replicas.urls}") List<String> urls,
+                                             @Value("${fidelidade.replicas.username:}") String usuario,
+                                             @Value("${fidelidade.replicas.password:}") String senha,
+                                             @Value("${fidelidade.replicas.tamanho-pool:10}") int tamanhoPool,
+                                             @Value("${fidelidade.replicas.atraso-maximo-segundos:5}") double atrasoMaximoSegundos,
+                                             @Value("${fidelidade.replicas.consulta-atraso:" + CONSULTA_ATRASO_POSTGRES + "}") String consultaAtraso) {
+        HikariDataSource principal = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(principal));
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setDriverClassName(principal.getDriverClassName());
+            replica.setUsername(usuario.isBlank() ? principal.getUsername() : usuario);
+            replica.setPassword(usuario.isBlank() ? principal.getPassword() : senha);
+            replica.setMaximumPoolSize(tamanhoPool);
+            replica.setMinimumIdle(tamanhoPool);
+            replica.setConnectionTimeout(principal.getConnectionTimeout());
+            replica.setMaxLifetime(principal.getMaxLifetime());
+            replica.setReadOnly(true);
+            // Réplica fora do ar na subida não impede a aplicação de subir: as leituras vão para o principal
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+
+        // Até a primeira verificação de atraso (logo após a subida), as leituras vão para o principal
+        return new RoteadorReplicas(principal, replicas, consultaAtraso, atrasoMaximoSegundos, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteadorReplicas roteadorReplicas) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(roteadorReplicas.getPrincipal());
+        dataSource.setReadOnlyDataSource(roteadorReplicas);
+        return dataSource;
+    }
+
+    // Antes do CachePaginasFilter, para que a página renderizada logo após uma escrita venha do principal
+    @Bean
+    public FilterRegistrationBean<FixacaoPrimarioFilter> fixacaoPrimarioFilter(
+            @Value("${fidelidade.replicas.fixar-primario-segundos:5}") long fixarPrimarioSegundos) {
+        FilterRegistrationBean<FixacaoPrimarioFilter> registro =
+                new FilterRegistrationBean<>(new FixacaoPrimarioFilter(fixarPrimarioSegundos));
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registro;
+    }
+}
@@ -0,0 +1,122 @@
+package com.bagatelle.fidelidade.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexões das transações somente leitura: alterna entre as réplicas dentro do atraso máximo
+ * e cai para o banco principal quando nenhuma está em dia (ou quando RoteamentoLeitura fixou
+ * o principal). O atraso de cada réplica é medido periodicamente por verificarAtraso.
+ */
+@Slf4j
+public class RoteadorReplicas extends AbstractDataSource implements Closeable {
+
+    private final HikariDataSource principal;
+    private final List<Replica> replicas;
+    private final String consultaAtraso;
+    private final double atrasoMaximoSegundos;
+    private final AtomicInteger proxima = new AtomicInteger();
+
+    public RoteadorReplicas(HikariDataSource principal, List<HikariDataSource> replicas, String consultaAtraso,
+                            double atrasoMaximoSegundos, MeterRegistry meterRegistry) {
+        this.principal = principal;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.consultaAtraso = consultaAtraso;
+        this.atrasoMaximoSegundos = atrasoMaximoSegundos;
+
+        for (Replica replica : this.replicas) {
+            Gauge.builder("fidelidade.replicas.atraso", replica, r -> r.atrasoSegundos)
+                    .description("Atraso da réplica em relação ao principal (NaN se inacessível)")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.pool.getPoolName())
+                    .register(meterRegistry);
+        }
+    }
+
+    public HikariDataSource getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return escolher().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return escolher().getConnection(username, password);
+    }
+
+    private HikariDataSource escolher() {
+        if (!RoteamentoLeitura.primarioFixado()) {
+            int inicio = Math.floorMod(proxima.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((inicio + i) % replicas.size());
+                if (replica.disponivel) {
+                    return replica.pool;
+                }
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * Mede o atraso de cada réplica. Réplicas inacessíveis ou atrasadas além do máximo
+     * deixam de receber leituras até a próxima verificação em dia.
+     */
+    @Scheduled(fixedDelayString = "${fidelidade.replicas.verificacao-ms:5000}")
+    public void verificarAtraso() {
+        for (Replica replica : replicas) {
+            double atraso;
+            try (Connection conexao = replica.pool.getConnection();
+                 Statement comando = conexao.createStatement();
+                 ResultSet resultado = comando.executeQuery(consultaAtraso)) {
+                resultado.next();
+                atraso = resultado.getDouble(1);
+            } catch (SQLException e) {
+                atraso = Double.NaN;
+            }
+
+            boolean disponivel = atraso <= atrasoMaximoSegundos;
+            if (disponivel != replica.disponivel) {
+                if (disponivel) {
+                    log.info("Réplica {} em dia (atraso de {}s): volta a receber leituras", replica.pool.getPoolName(), atraso);
+                } else {
+                    log.warn("Réplica {} fora do ar ou atrasada (atraso de {}s): leituras vão para o principal",
+                            replica.pool.getPoolName(), atraso);
+                }
+            }
+            replica.atrasoSegundos = atraso;
+            replica.disponivel = disponivel;
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+        principal.close();
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource pool;
+        private volatile boolean disponivel;
+        private volatile double atrasoSegundos = Double.NaN;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+    }
+}
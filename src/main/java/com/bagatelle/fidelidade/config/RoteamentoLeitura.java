@@ -0,0 +1,47 @@
+package com.bagatelle.fidelidade.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Fixa as leituras da thread atual no banco principal, inclusive as de transações somente leitura,
+ * que normalmente vão para uma réplica (ver ReplicasLeituraConfig). Usado logo depois de uma escrita,
+ * quando a réplica pode ainda não ter recebido o que acabou de ser gravado.
+ * Sem réplicas configuradas não tem efeito: tudo já vai para o principal.
+ */
+public final class RoteamentoLeitura {
+
+    private static final ThreadLocal<Boolean> PRIMARIO_FIXADO = new ThreadLocal<>();
+
+    private RoteamentoLeitura() {
+    }
+
+    public static boolean primarioFixado() {
+        return Boolean.TRUE.equals(PRIMARIO_FIXADO.get());
+    }
+
+    /**
+     * Fixa o principal e retorna o estado anterior, que deve ser devolvido a restaurar num finally.
+     */
+    public static boolean fixarPrimario() {
+        boolean anterior = primarioFixado();
+        PRIMARIO_FIXADO.set(Boolean.TRUE);
+        return anterior;
+    }
+
+    public static void restaurar(boolean anterior) {
+        if (anterior) {
+            PRIMARIO_FIXADO.set(Boolean.TRUE);
+        } else {
+            PRIMARIO_FIXADO.remove();
+        }
+    }
+
+    public static <T> T noPrimario(Supplier<T> leitura) {
+        boolean anterior = fixarPrimario();
+        try {
+            return leitura.get();
+        } finally {
+            restaurar(anterior);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.bagatelle.fidelidade.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Confere na inicialização se os índices criados pelas migrações existem.
+ * Sem eles as consultas do dashboard, do FIFO de cashback e da listagem de vendas
+ * viram varreduras completas, então a aplicação não sobe.
+ * Pode ser desligada (fidelidade.indices.verificar=false) em bancos que não são PostgreSQL.
+ */
+@Component
+@ConditionalOnProperty(name = "fidelidade.indices.verificar", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class VerificadorIndices implements ApplicationRunner {
+
+    private static final List<String> INDICES_OBRIGATORIOS = List.of(
+            "idx_registros_cashback_cliente_utilizado_expiracao",
+            "idx_registros_cashback_expiracao_aberto",
+            "idx_vendas_data_venda_id",
+            "idx_vendas_cliente_data_venda",
+            "idx_itens_venda_venda",
+            "idx_itens_venda_produto",
+            "idx_itens_venda_previsao_termino",
+            "idx_itens_venda_data_venda",
+            "idx_clientes_texto_busca_trgm",
+            "idx_produtos_texto_busca_trgm",
+            "idx_eventos_venda_pendentes",
+            "uk_registros_cashback_venda",
+            "uk_vendas_chave_idempotencia"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Set<String> existentes = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema()",
+                String.class));
+
+        List<String> faltando = INDICES_OBRIGATORIOS.stream()
+                .filter(indice -> !existentes.contains(indice))
+                .toList();
+
+        if (!faltando.isEmpty()) {
+            throw new IllegalStateException("Índices obrigatórios ausentes no banco: " + faltando
+                    + ". Verifique se as migrações do Flyway foram aplicadas.");
+        }
+    }
+}
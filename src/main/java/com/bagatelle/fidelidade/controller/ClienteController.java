@@ -1,17 +1,32 @@
 package com.bagatelle.fidelidade.controller;
 
 import com.bagatelle.fidelidade.dto.ClienteDTO;
+import com.bagatelle.fidelidade.dto.HistoricoClienteDTO;
+import com.bagatelle.fidelidade.dto.ResultadoImportacaoDTO;
 import com.bagatelle.fidelidade.model.Cliente;
+import com.bagatelle.fidelidade.repository.ClienteRepository.ResumoHistorico;
 import com.bagatelle.fidelidade.service.ClienteService;
+import com.bagatelle.fidelidade.service.HistoricoClienteService;
+import com.bagatelle.fidelidade.service.ImportacaoService;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,6 +36,8 @@ import java.util.stream.Collectors;
 public class ClienteController {
 
     private final ClienteService clienteService;
+    private final ImportacaoService importacaoService;
+    private final HistoricoClienteService historicoClienteService;
 
     @GetMapping
     public String listar(Model model) {
@@ -108,6 +125,7 @@ public class ClienteController {
 
     // Endpoint AJAX para buscar clientes
     @GetMapping("/api/buscar")
+    @Timed(value = "fidelidade.busca", extraTags = {"entidade", "cliente"}, histogram = true)
     @ResponseBody
     public ResponseEntity<List<ClienteDTO>> buscar(@RequestParam String termo) {
         List<Cliente> clientes = clienteService.buscarPorCpfOuNome(termo);
@@ -116,4 +134,44 @@ public class ClienteController {
                 .collect(Collectors.toList());
         return ResponseEntity.ok(clientesDTO);
     }
-}
\ No newline at end of file
+
+    // Importação em massa (CSV, campo "arquivo"); retorna o resumo e as linhas rejeitadas
+    @PostMapping("/api/importar")
+    @ResponseBody
+    public ResponseEntity<ResultadoImportacaoDTO> importar(@RequestParam MultipartFile arquivo) throws IOException {
+        try (Reader reader = new InputStreamReader(arquivo.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(importacaoService.importarClientes(reader));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ResultadoImportacaoDTO.falha(e.getMessage()));
+        }
+    }
+
+    // Histórico 360 do cliente (vendas, itens e cashback), paginado por cursor como a lista de vendas.
+    // Responde 304 quando o ETag não mudou, sem ler o histórico.
+    @GetMapping("/{id}/api/historico")
+    @Timed(value = "fidelidade.cliente.historico", histogram = true)
+    @ResponseBody
+    public ResponseEntity<HistoricoClienteDTO> historico(@PathVariable Long id,
+                                                         @RequestParam(required = false)
+                                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime antesDe,
+                                                         @RequestParam(required = false) Long antesDeId,
+                                                         @RequestParam(defaultValue = "" + HistoricoClienteService.TAMANHO_PAGINA_PADRAO) int tamanho,
+                                                         WebRequest request) {
+        ResumoHistorico resumo;
+        try {
+            resumo = historicoClienteService.buscarResumo(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String etag = historicoClienteService.calcularEtag(resumo);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(historicoClienteService.buscarHistorico(resumo, antesDe, antesDeId, tamanho));
+    }
+}
@@ -1,13 +1,18 @@
 package com.bagatelle.fidelidade.controller;
 
-import com.bagatelle.fidelidade.model.RegistroCashback;
-import com.bagatelle.fidelidade.model.Venda;
+import com.bagatelle.fidelidade.dto.AlertaCashbackDTO;
+import com.bagatelle.fidelidade.dto.ResumoDashboardDTO;
+import com.bagatelle.fidelidade.dto.VendaDTO;
 import com.bagatelle.fidelidade.service.DashboardService;
+import com.bagatelle.fidelidade.service.TransmissaoDashboardService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -17,25 +22,33 @@ import java.util.List;
 public class DashboardController {
 
     private final DashboardService dashboardService;
+    private final TransmissaoDashboardService transmissaoDashboardService;
 
     @GetMapping
     public String index(Model model) {
-        // Busca dados para o dashboard
-        List<RegistroCashback> cashbacksExpirando = dashboardService.buscarCashbackExpirando();
-        List<Venda> sugestoesRecompra = dashboardService.buscarSugestoesRecompra();
+        // Resumo mantido em memória pelo DashboardService (contadores e prévias)
+        ResumoDashboardDTO resumo = dashboardService.getResumo();
 
         model.addAttribute("paginaAtiva", "dashboard");
-        model.addAttribute("cashbacksExpirando", cashbacksExpirando);
-        model.addAttribute("sugestoesRecompra", sugestoesRecompra);
-        model.addAttribute("totalCashbacksExpirando", cashbacksExpirando.size());
-        model.addAttribute("totalSugestoesRecompra", sugestoesRecompra.size());
+        model.addAttribute("resumo", resumo);
+        model.addAttribute("cashbacksExpirando", resumo.getCashbacksExpirando());
+        model.addAttribute("sugestoesRecompra", resumo.getSugestoesRecompra());
+        model.addAttribute("totalCashbacksExpirando", resumo.getTotalCashbacksExpirando());
+        model.addAttribute("totalSugestoesRecompra", resumo.getTotalSugestoesRecompra());
 
         return "dashboard/index";
     }
 
+    // Atualizações do dashboard por push (Server-Sent Events), consumidas por js/dashboard.js
+    @GetMapping(path = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter eventos() {
+        return transmissaoDashboardService.assinar();
+    }
+
     @GetMapping("/cashback-expirando")
     public String cashbackExpirando(Model model) {
-        List<RegistroCashback> cashbacksExpirando = dashboardService.buscarCashbackExpirando();
+        List<AlertaCashbackDTO> cashbacksExpirando = dashboardService.buscarCashbackExpirando();
         model.addAttribute("paginaAtiva", "dashboard");
         model.addAttribute("registros", cashbacksExpirando);
         return "dashboard/cashback-expirando";
@@ -43,7 +56,7 @@ public class DashboardController {
 
     @GetMapping("/sugestoes-recompra")
     public String sugestoesRecompra(Model model) {
-        List<Venda> sugestoesRecompra = dashboardService.buscarSugestoesRecompra();
+        List<VendaDTO> sugestoesRecompra = dashboardService.buscarSugestoesRecompra();
         model.addAttribute("paginaAtiva", "dashboard");
         model.addAttribute("vendas", sugestoesRecompra);
         return "dashboard/sugestoes-recompra";
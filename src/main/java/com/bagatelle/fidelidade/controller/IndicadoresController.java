@@ -0,0 +1,79 @@
+package com.bagatelle.fidelidade.controller;
+
+import com.bagatelle.fidelidade.dto.IndicadoresVendasDTO;
+import com.bagatelle.fidelidade.dto.ResultadoReconstrucaoIndicadoresDTO;
+import com.bagatelle.fidelidade.service.IndicadoresService;
+import com.bagatelle.fidelidade.service.IndicadoresService.Agrupamento;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.time.LocalDate;
+
+@Controller
+@RequestMapping("/indicadores")
+@RequiredArgsConstructor
+public class IndicadoresController {
+
+    private final IndicadoresService indicadoresService;
+
+    // Sem período informado: os últimos 12 meses, por mês
+    @GetMapping
+    public String index(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+                        @RequestParam(defaultValue = "MES") Agrupamento agrupamento,
+                        Model model) {
+        LocalDate hoje = LocalDate.now();
+        if (fim == null) {
+            fim = hoje;
+        }
+        if (inicio == null) {
+            inicio = fim.minusMonths(11).withDayOfMonth(1);
+        }
+
+        model.addAttribute("paginaAtiva", "indicadores");
+        model.addAttribute("inicio", inicio);
+        model.addAttribute("fim", fim);
+        model.addAttribute("agrupamento", agrupamento);
+        try {
+            model.addAttribute("indicadores", indicadoresService.consultar(inicio, fim, agrupamento));
+        } catch (IllegalArgumentException e) {
+            model.addAttribute("mensagemErro", e.getMessage());
+        }
+        return "indicadores/index";
+    }
+
+    // Mesmos indicadores em JSON (inicio e fim obrigatórios, inclusivos)
+    @GetMapping("/api")
+    @ResponseBody
+    public ResponseEntity<IndicadoresVendasDTO> consultar(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @RequestParam(defaultValue = "DIA") Agrupamento agrupamento) {
+        try {
+            return ResponseEntity.ok(indicadoresService.consultar(inicio, fim, agrupamento));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Recalcula os indicadores do período a partir das vendas e do cashback (ex: após correção de dados)
+    @PostMapping("/api/reconstruir")
+    @ResponseBody
+    public ResponseEntity<ResultadoReconstrucaoIndicadoresDTO> reconstruir(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim) {
+        try {
+            return ResponseEntity.ok(indicadoresService.reconstruir(inicio, fim));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.bagatelle.fidelidade.controller;
 
 import com.bagatelle.fidelidade.dto.ProdutoDTO;
+import com.bagatelle.fidelidade.dto.ResultadoImportacaoDTO;
 import com.bagatelle.fidelidade.model.Produto;
 import com.bagatelle.fidelidade.service.ProdutoService;
+import com.bagatelle.fidelidade.service.ImportacaoService;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -10,8 +13,13 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,6 +29,7 @@ import java.util.stream.Collectors;
 public class ProdutoController {
 
     private final ProdutoService produtoService;
+    private final ImportacaoService importacaoService;
 
     @GetMapping
     public String listar(Model model) {
@@ -108,6 +117,7 @@ public class ProdutoController {
 
     // Endpoint AJAX para buscar produtos
     @GetMapping("/api/buscar")
+    @Timed(value = "fidelidade.busca", extraTags = {"entidade", "produto"}, histogram = true)
     @ResponseBody
     public ResponseEntity<List<ProdutoDTO>> buscar(@RequestParam String termo) {
         List<Produto> produtos = produtoService.buscarPorNomeOuMarca(termo);
@@ -116,4 +126,15 @@ public class ProdutoController {
                 .collect(Collectors.toList());
         return ResponseEntity.ok(produtosDTO);
     }
-}
\ No newline at end of file
+
+    // Importação em massa (CSV, campo "arquivo"); retorna o resumo e as linhas rejeitadas
+    @PostMapping("/api/importar")
+    @ResponseBody
+    public ResponseEntity<ResultadoImportacaoDTO> importar(@RequestParam MultipartFile arquivo) throws IOException {
+        try (Reader reader = new InputStreamReader(arquivo.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(importacaoService.importarProdutos(reader));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ResultadoImportacaoDTO.falha(e.getMessage()));
+        }
+    }
+}
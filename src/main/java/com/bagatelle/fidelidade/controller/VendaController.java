@@ -1,20 +1,42 @@
 package com.bagatelle.fidelidade.controller;
 
 //import com.bagatelle.fidelidade.dto.ItemVendaDTO;
+import com.bagatelle.fidelidade.dto.NovaVendaDTO;
+import com.bagatelle.fidelidade.dto.PaginaVendasDTO;
+import com.bagatelle.fidelidade.dto.ResultadoReaberturaCashbackDTO;
+import com.bagatelle.fidelidade.dto.ResultadoSincronizacaoDTO;
+import com.bagatelle.fidelidade.dto.VendaDTO;
 import com.bagatelle.fidelidade.model.ItemVenda;
 import com.bagatelle.fidelidade.model.Produto;
 import com.bagatelle.fidelidade.model.Venda;
-import com.bagatelle.fidelidade.service.ProdutoService;
+import com.bagatelle.fidelidade.service.ExportacaoService;
+import com.bagatelle.fidelidade.service.GeradorCashbackJob;
+import com.bagatelle.fidelidade.service.SincronizacaoVendasService;
 import com.bagatelle.fidelidade.service.VendaService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @Controller
 @RequestMapping("/vendas")
@@ -22,13 +44,20 @@ import java.util.List;
 public class VendaController {
 
     private final VendaService vendaService;
-    private final ProdutoService produtoService;
+    private final ExportacaoService exportacaoService;
+    private final SincronizacaoVendasService sincronizacaoVendasService;
+    private final GeradorCashbackJob geradorCashbackJob;
 
     @GetMapping
-    public String listar(Model model) {
-        List<Venda> vendas = vendaService.listarTodas();
+    public String listar(@RequestParam(required = false)
+                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime antesDe,
+                         @RequestParam(required = false) Long antesDeId,
+                         Model model) {
+        PaginaVendasDTO pagina = vendaService.listarPagina(antesDe, antesDeId);
         model.addAttribute("paginaAtiva", "vendas");
-        model.addAttribute("vendas", vendas);
+        model.addAttribute("vendas", pagina.getVendas());
+        model.addAttribute("pagina", pagina);
+        model.addAttribute("primeiraPagina", antesDe == null || antesDeId == null);
         return "venda/lista";
     }
 
@@ -54,20 +83,12 @@ public class VendaController {
                 throw new RuntimeException("Dados inválidos: produtos e quantidades não correspondem");
             }
 
-            // Cria lista de itens
+            // Cria lista de itens (os produtos são carregados de uma vez pelo serviço)
             List<ItemVenda> itens = new ArrayList<>();
             for (int i = 0; i < produtoIds.size(); i++) {
-                Produto produto = produtoService.buscarPorId(produtoIds.get(i));
-                Integer quantidade = quantidades.get(i);
-
-                if (quantidade == null || quantidade < 1) {
-                    throw new RuntimeException("Quantidade inválida para o produto: " + produto.getNomePerfume());
-                }
-
                 ItemVenda item = ItemVenda.builder()
-                        .produto(produto)
-                        .quantidade(quantidade)
-                        .precoUnitario(produto.getPrecoVenda())
+                        .produto(Produto.builder().id(produtoIds.get(i)).build())
+                        .quantidade(quantidades.get(i))
                         .build();
 
                 itens.add(item);
@@ -93,10 +114,29 @@ public class VendaController {
         }
     }
 
+    // Sincronização do terminal (PDV) que ficou sem conexão: a fila de vendas inteira em JSON.
+    // Reenviar a mesma fila é seguro: vendas já recebidas voltam como DUPLICADA.
+    @PostMapping("/api/sincronizar")
+    @ResponseBody
+    public ResponseEntity<ResultadoSincronizacaoDTO> sincronizar(@RequestBody List<NovaVendaDTO> vendas) {
+        try {
+            return ResponseEntity.ok(sincronizacaoVendasService.sincronizar(vendas));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ResultadoSincronizacaoDTO.falha(e.getMessage()));
+        }
+    }
+
+    // Volta para a fila as vendas cujo cashback falhou em todas as tentativas (após corrigir a causa)
+    @PostMapping("/api/cashback/reabrir-falhas")
+    @ResponseBody
+    public ResponseEntity<ResultadoReaberturaCashbackDTO> reabrirFalhasCashback() {
+        return ResponseEntity.ok(geradorCashbackJob.reabrirFalhas());
+    }
+
     @GetMapping("/{id}")
     public String detalhes(@PathVariable Long id, Model model) {
         try {
-            Venda venda = vendaService.buscarPorId(id);
+            VendaDTO venda = vendaService.buscarDetalhes(id);
             model.addAttribute("venda", venda);
             model.addAttribute("paginaAtiva", "vendas");
 
@@ -110,4 +150,39 @@ public class VendaController {
             return "redirect:/vendas";
         }
     }
+
+    /**
+     * Exportação para a contabilidade: CSV das vendas, itens ou cashback de um mês (mes=2025-03)
+     * ou de um período (inicio/fim, inclusivos). Com gzip=true o arquivo sai compactado.
+     * O CSV é escrito direto na resposta, sem montar o arquivo em memória.
+     */
+    @GetMapping("/exportar")
+    public void exportar(@RequestParam(defaultValue = "VENDAS") ExportacaoService.TipoExportacao tipo,
+                         @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth mes,
+                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+                         @RequestParam(defaultValue = "false") boolean gzip,
+                         HttpServletResponse response) throws IOException {
+        if (mes != null) {
+            inicio = mes.atDay(1);
+            fim = mes.atEndOfMonth();
+        }
+        if (inicio == null || fim == null || fim.isBefore(inicio)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Informe o mês ou um período válido (inicio e fim)");
+            return;
+        }
+
+        String nomeArquivo = tipo.name().toLowerCase() + "_" + inicio + "_" + fim + (gzip ? ".csv.gz" : ".csv");
+        response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(nomeArquivo)
+                .build()
+                .toString());
+
+        OutputStream saida = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024)
+                                  : response.getOutputStream();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 64 * 1024)) {
+            exportacaoService.exportar(tipo, inicio, fim, writer);
+        }
+    }
 }
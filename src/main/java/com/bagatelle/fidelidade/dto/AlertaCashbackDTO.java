@@ -0,0 +1,21 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Prévia de cashback expirando exibida no dashboard
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertaCashbackDTO {
+
+    private Long registroId;
+    private String nomeCliente;
+    private String telefone;
+    private BigDecimal valor;
+    private LocalDate dataExpiracao;
+}
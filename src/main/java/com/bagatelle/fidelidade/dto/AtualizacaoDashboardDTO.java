@@ -0,0 +1,79 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Diferença entre dois resumos do dashboard, enviada por push às telas abertas:
+ * contadores novos e as linhas que entraram ou saíram das prévias.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtualizacaoDashboardDTO {
+
+    private long totalCashbacksExpirando;
+    private long totalSugestoesRecompra;
+    private LocalDateTime atualizadoEm;
+
+    // atualizadoEm do resumo a que esta diferença se aplica; a tela que estiver em outro
+    // resumo (mensagem perdida, conexão no meio de um recálculo) reconecta e recebe o completo
+    private LocalDateTime anteriorEm;
+
+    @Builder.Default
+    private List<AlertaCashbackDTO> cashbacksAdicionados = new ArrayList<>();
+
+    // IDs dos registros de cashback que saíram da prévia
+    @Builder.Default
+    private List<Long> cashbacksRemovidos = new ArrayList<>();
+
+    @Builder.Default
+    private List<SugestaoRecompraDTO> sugestoesAdicionadas = new ArrayList<>();
+
+    // IDs das vendas que saíram da prévia
+    @Builder.Default
+    private List<Long> sugestoesRemovidas = new ArrayList<>();
+
+    public static AtualizacaoDashboardDTO entre(ResumoDashboardDTO anterior, ResumoDashboardDTO atual) {
+        Set<Long> cashbacksAnteriores = idsCashback(anterior.getCashbacksExpirando());
+        Set<Long> cashbacksAtuais = idsCashback(atual.getCashbacksExpirando());
+        Set<Long> sugestoesAnteriores = idsSugestao(anterior.getSugestoesRecompra());
+        Set<Long> sugestoesAtuais = idsSugestao(atual.getSugestoesRecompra());
+
+        return AtualizacaoDashboardDTO.builder()
+                .totalCashbacksExpirando(atual.getTotalCashbacksExpirando())
+                .totalSugestoesRecompra(atual.getTotalSugestoesRecompra())
+                .atualizadoEm(atual.getAtualizadoEm())
+                .anteriorEm(anterior.getAtualizadoEm())
+                .cashbacksAdicionados(atual.getCashbacksExpirando().stream()
+                        .filter(alerta -> !cashbacksAnteriores.contains(alerta.getRegistroId()))
+                        .toList())
+                .cashbacksRemovidos(cashbacksAnteriores.stream()
+                        .filter(id -> !cashbacksAtuais.contains(id))
+                        .toList())
+                .sugestoesAdicionadas(atual.getSugestoesRecompra().stream()
+                        .filter(sugestao -> !sugestoesAnteriores.contains(sugestao.getVendaId()))
+                        .toList())
+                .sugestoesRemovidas(sugestoesAnteriores.stream()
+                        .filter(id -> !sugestoesAtuais.contains(id))
+                        .toList())
+                .build();
+    }
+
+    private static Set<Long> idsCashback(List<AlertaCashbackDTO> alertas) {
+        return alertas.stream().map(AlertaCashbackDTO::getRegistroId).collect(Collectors.toSet());
+    }
+
+    private static Set<Long> idsSugestao(List<SugestaoRecompraDTO> sugestoes) {
+        return sugestoes.stream().map(SugestaoRecompraDTO::getVendaId).collect(Collectors.toSet());
+    }
+}
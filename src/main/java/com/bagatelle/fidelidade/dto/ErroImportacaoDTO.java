@@ -0,0 +1,15 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Linha do arquivo importado que foi rejeitada e o motivo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErroImportacaoDTO {
+
+    private long linha;
+    private String mensagem;
+}
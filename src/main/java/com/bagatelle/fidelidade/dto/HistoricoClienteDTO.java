@@ -0,0 +1,76 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Visão 360 do cliente (API do balcão): dados, saldo e uma página do histórico de compras
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoricoClienteDTO {
+
+    private Long clienteId;
+    private String nomeCompleto;
+    private String cpf;
+    private String telefone;
+    private String email;
+    private BigDecimal saldoCashback;
+
+    @Builder.Default
+    private List<VendaHistorico> vendas = new ArrayList<>();
+
+    private boolean temProxima;
+
+    // Cursor da próxima página (antesDe/antesDeId): última venda desta página
+    private LocalDateTime cursorDataVenda;
+    private Long cursorId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VendaHistorico {
+        private Long id;
+        private LocalDateTime dataVenda;
+        private BigDecimal valorTotal;
+        private BigDecimal valorCashbackUsado;
+        private List<ItemHistorico> itens = new ArrayList<>();
+
+        // Cashback gerado pela venda; vazio enquanto a geração (assíncrona) não rodou
+        private CashbackHistorico cashback;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemHistorico {
+        private Long produtoId;
+        private String nomePerfume;
+        private String marca;
+        private String volume;
+        private Integer quantidade;
+        private BigDecimal precoUnitario;
+        private LocalDate dataPrevisaoTermino;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CashbackHistorico {
+        private Long id;
+        private BigDecimal valor;
+        private BigDecimal valorUtilizado;
+        private LocalDate dataGeracao;
+        private LocalDate dataExpiracao;
+        private Boolean utilizado;
+        private Boolean expirado;
+    }
+}
@@ -0,0 +1,79 @@
+package com.bagatelle.fidelidade.dto;
+
+import com.bagatelle.fidelidade.model.IndicadorDiario;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Indicadores de um período (tela /indicadores e /indicadores/api): total, série por dia,
+ * semana ou mês e os produtos e marcas que mais faturaram. Valores somados dos indicadores diários.
+ */
+@Data
+@NoArgsConstructor
+public class IndicadoresVendasDTO {
+
+    private LocalDate inicio;
+    private LocalDate fim;
+    private String agrupamento;
+    private Periodo total;
+    private List<Periodo> periodos = new ArrayList<>();
+    private List<ItemRanking> produtos = new ArrayList<>();
+    private List<ItemRanking> marcas = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class Periodo {
+
+        // Primeiro dia do período (segunda-feira na semana, dia 1 no mês)
+        private LocalDate inicio;
+        private long quantidadeVendas;
+        private BigDecimal faturamento = BigDecimal.ZERO;
+        private BigDecimal cashbackUsado = BigDecimal.ZERO;
+        private BigDecimal cashbackGerado = BigDecimal.ZERO;
+        private BigDecimal cashbackExpirado = BigDecimal.ZERO;
+
+        public Periodo(LocalDate inicio) {
+            this.inicio = inicio;
+        }
+
+        public void somar(IndicadorDiario dia) {
+            quantidadeVendas += dia.getQuantidadeVendas();
+            faturamento = faturamento.add(dia.getFaturamento());
+            cashbackUsado = cashbackUsado.add(dia.getCashbackUsado());
+            cashbackGerado = cashbackGerado.add(dia.getCashbackGerado());
+            cashbackExpirado = cashbackExpirado.add(dia.getCashbackExpirado());
+        }
+
+        // Faturamento descontado o cashback usado como pagamento
+        public BigDecimal getFaturamentoLiquido() {
+            return faturamento.subtract(cashbackUsado);
+        }
+
+        public BigDecimal getTicketMedio() {
+            if (quantidadeVendas == 0) {
+                return BigDecimal.ZERO;
+            }
+            return faturamento.divide(BigDecimal.valueOf(quantidadeVendas), 2, RoundingMode.HALF_UP);
+        }
+    }
+
+    // Produto (com a marca) ou marca, conforme o ranking
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemRanking {
+
+        private Long produtoId;
+        private String nome;
+        private String marca;
+        private long quantidade;
+        private BigDecimal faturamento;
+    }
+}
@@ -1,5 +1,7 @@
 package com.bagatelle.fidelidade.dto;
 
+import com.bagatelle.fidelidade.model.ItemVenda;
+import com.bagatelle.fidelidade.model.Produto;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -27,4 +29,17 @@ public class ItemVendaDTO {
         }
         return BigDecimal.ZERO;
     }
+
+    public static ItemVendaDTO fromEntity(ItemVenda item) {
+        Produto produto = item.getProduto();
+        return ItemVendaDTO.builder()
+                .produtoId(produto.getId())
+                .nomeProduto(produto.getNomePerfume())
+                .marca(produto.getMarca())
+                .volume(produto.getVolume())
+                .quantidade(item.getQuantidade())
+                .precoUnitario(item.getPrecoUnitario())
+                .subtotal(item.calcularSubtotal())
+                .build();
+    }
 }
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +16,11 @@ import java.util.List;
 @AllArgsConstructor
 public class NovaVendaDTO {
 
+    // Vendas feitas no terminal sem conexão (sincronização em lote): chave única gerada
+    // pelo terminal, para descartar reenvios, e o momento em que a venda aconteceu
+    private String chaveIdempotencia;
+    private LocalDateTime dataVenda;
+
     private Long clienteId;
     private String clienteNome;
     private String clienteCpf;
@@ -0,0 +1,26 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaVendasDTO {
+
+    @Builder.Default
+    private List<VendaDTO> vendas = new ArrayList<>();
+
+    private boolean temProxima;
+
+    // Cursor da próxima página: última venda exibida nesta página
+    private LocalDateTime cursorDataVenda;
+    private Long cursorId;
+}
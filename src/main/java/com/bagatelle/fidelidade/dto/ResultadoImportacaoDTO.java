@@ -0,0 +1,37 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de uma importação de CSV. Só as primeiras LIMITE_ERROS_LISTADOS linhas rejeitadas
+ * são listadas (para o resultado não crescer com o arquivo); totalErros conta todas.
+ */
+@Data
+@NoArgsConstructor
+public class ResultadoImportacaoDTO {
+
+    public static final int LIMITE_ERROS_LISTADOS = 1000;
+
+    private long linhasLidas;
+    private long importados;
+    private long totalErros;
+    private List<ErroImportacaoDTO> erros = new ArrayList<>();
+
+    // Erro no arquivo como um todo (ex: cabeçalho sem uma coluna obrigatória)
+    public static ResultadoImportacaoDTO falha(String mensagem) {
+        ResultadoImportacaoDTO resultado = new ResultadoImportacaoDTO();
+        resultado.adicionarErro(0, mensagem);
+        return resultado;
+    }
+
+    public void adicionarErro(long linha, String mensagem) {
+        totalErros++;
+        if (erros.size() < LIMITE_ERROS_LISTADOS) {
+            erros.add(new ErroImportacaoDTO(linha, mensagem));
+        }
+    }
+}
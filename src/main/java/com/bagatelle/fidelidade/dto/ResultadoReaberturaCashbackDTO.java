@@ -0,0 +1,22 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado da reabertura dos eventos de cashback que esgotaram as tentativas: os dias das vendas
+ * reabertas, com os indicadores reconstruídos, e os dias cuja reconstrução falhou (pedir de novo).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoReaberturaCashbackDTO {
+
+    private List<LocalDate> dias = new ArrayList<>();
+    private List<LocalDate> diasComFalha = new ArrayList<>();
+}
@@ -0,0 +1,24 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado da reconstrução dos indicadores de um período. O início pode ser posterior ao pedido:
+ * dias com dados já arquivados não são reconstruídos. Dias com falha podem ser pedidos de novo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoReconstrucaoIndicadoresDTO {
+
+    private LocalDate inicio;
+    private LocalDate fim;
+    private long diasReconstruidos;
+    private List<LocalDate> diasComFalha = new ArrayList<>();
+}
@@ -0,0 +1,56 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado da sincronização de um lote de vendas do terminal, na ordem em que foram enviadas.
+ * O terminal pode tirar da fila as vendas REGISTRADA e DUPLICADA; as REJEITADA precisam de correção
+ * (ou de um novo envio, quando o erro foi ao gravar o lote).
+ */
+@Data
+@NoArgsConstructor
+public class ResultadoSincronizacaoDTO {
+
+    public enum Situacao {
+        REGISTRADA, DUPLICADA, REJEITADA
+    }
+
+    private long recebidas;
+    private long registradas;
+    private long duplicadas;
+    private long rejeitadas;
+    private List<VendaSincronizada> vendas = new ArrayList<>();
+
+    // Erro no lote como um todo (ex: mais vendas do que o permitido numa chamada)
+    public static ResultadoSincronizacaoDTO falha(String mensagem) {
+        ResultadoSincronizacaoDTO resultado = new ResultadoSincronizacaoDTO();
+        resultado.getVendas().add(new VendaSincronizada(null, Situacao.REJEITADA, null, mensagem));
+        resultado.setRejeitadas(1);
+        return resultado;
+    }
+
+    public void adicionar(VendaSincronizada venda) {
+        vendas.add(venda);
+        switch (venda.getSituacao()) {
+            case REGISTRADA -> registradas++;
+            case DUPLICADA -> duplicadas++;
+            case REJEITADA -> rejeitadas++;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VendaSincronizada {
+
+        private String chaveIdempotencia;
+        private Situacao situacao;
+        private Long vendaId;
+        private String mensagem;
+    }
+}
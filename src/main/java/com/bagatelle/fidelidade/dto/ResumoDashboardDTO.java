@@ -0,0 +1,32 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retrato do dashboard mantido em memória pelo DashboardService: contadores e as
+ * primeiras linhas de cada seção. Compartilhado entre requisições, então só leitura.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoDashboardDTO {
+
+    private long totalCashbacksExpirando;
+    private long totalSugestoesRecompra;
+
+    @Builder.Default
+    private List<AlertaCashbackDTO> cashbacksExpirando = new ArrayList<>();
+
+    @Builder.Default
+    private List<SugestaoRecompraDTO> sugestoesRecompra = new ArrayList<>();
+
+    private LocalDateTime atualizadoEm;
+}
@@ -0,0 +1,21 @@
+package com.bagatelle.fidelidade.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Prévia de sugestão de recompra exibida no dashboard
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SugestaoRecompraDTO {
+
+    private Long vendaId;
+    private String nomeCliente;
+    private String telefone;
+    private LocalDateTime dataVenda;
+    private BigDecimal valorTotal;
+}
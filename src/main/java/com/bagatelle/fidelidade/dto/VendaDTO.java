@@ -0,0 +1,69 @@
+package com.bagatelle.fidelidade.dto;
+
+import com.bagatelle.fidelidade.model.Cliente;
+import com.bagatelle.fidelidade.model.Venda;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Venda pronta para as telas: montada no serviço, sem associações lazy para a view percorrer
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VendaDTO {
+
+    private Long id;
+    private LocalDateTime dataVenda;
+    private Long clienteId;
+    private String nomeCliente;
+    private String cpfCliente;
+    private String telefoneCliente;
+    private BigDecimal valorTotal;
+    private BigDecimal valorCashbackUsado;
+
+    @Builder.Default
+    private List<ItemVendaDTO> itens = new ArrayList<>();
+
+    // Usado pelas consultas JPQL (SELECT new ...) das listagens, que não trazem os itens
+    public VendaDTO(Long id, LocalDateTime dataVenda, Long clienteId, String nomeCliente,
+                    String cpfCliente, String telefoneCliente,
+                    BigDecimal valorTotal, BigDecimal valorCashbackUsado) {
+        this(id, dataVenda, clienteId, nomeCliente, cpfCliente, telefoneCliente,
+                valorTotal, valorCashbackUsado, new ArrayList<>());
+    }
+
+    // valorTotal é a soma dos itens (ver VendaService.registrarVenda)
+    public BigDecimal calcularValorFinal() {
+        if (valorTotal == null) {
+            return BigDecimal.ZERO;
+        }
+        return valorCashbackUsado != null ? valorTotal.subtract(valorCashbackUsado) : valorTotal;
+    }
+
+    /**
+     * Converte uma venda com cliente, itens e produtos já carregados (JOIN FETCH).
+     */
+    public static VendaDTO fromEntity(Venda venda) {
+        Cliente cliente = venda.getCliente();
+        return VendaDTO.builder()
+                .id(venda.getId())
+                .dataVenda(venda.getDataVenda())
+                .clienteId(cliente.getId())
+                .nomeCliente(cliente.getNomeCompleto())
+                .cpfCliente(cliente.getCpf())
+                .telefoneCliente(cliente.getTelefone())
+                .valorTotal(venda.getValorTotal())
+                .valorCashbackUsado(venda.getValorCashbackUsado())
+                .itens(venda.getItens().stream()
+                        .map(ItemVendaDTO::fromEntity)
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,8 @@
+package com.bagatelle.fidelidade.event;
+
+/**
+ * Publicado por CashbackService quando registros de cashback são utilizados ou expirados.
+ * clienteId é nulo quando a alteração atinge vários clientes (expiração em lote).
+ */
+public record CashbackAlteradoEvent(Long clienteId) {
+}
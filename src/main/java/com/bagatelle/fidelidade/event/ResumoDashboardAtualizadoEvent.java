@@ -0,0 +1,9 @@
+package com.bagatelle.fidelidade.event;
+
+import com.bagatelle.fidelidade.dto.ResumoDashboardDTO;
+
+/**
+ * Publicado por DashboardService a cada recálculo do resumo. anterior é nulo no primeiro cálculo.
+ */
+public record ResumoDashboardAtualizadoEvent(ResumoDashboardDTO anterior, ResumoDashboardDTO atual) {
+}
@@ -0,0 +1,8 @@
+package com.bagatelle.fidelidade.event;
+
+/**
+ * Publicado por VendaService ao registrar uma venda. Ouvintes que dependem dos dados
+ * gravados devem usar @TransactionalEventListener (fase AFTER_COMMIT).
+ */
+public record VendaRegistradaEvent(Long vendaId, Long clienteId) {
+}
@@ -0,0 +1,22 @@
+package com.bagatelle.fidelidade.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Venda que já teve o cashback gerado (V9__cashback_por_venda.sql). A chave primária em venda_id
+ * garante um único registro de cashback por venda, o que o índice da tabela particionada
+ * registros_cashback não garante mais.
+ */
+@Entity
+@Table(name = "cashback_vendas")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CashbackVenda {
+
+    @Id
+    @Column(name = "venda_id")
+    private Long vendaId;
+}
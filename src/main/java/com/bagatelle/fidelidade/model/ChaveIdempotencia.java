@@ -0,0 +1,24 @@
+package com.bagatelle.fidelidade.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Chave de idempotência de uma venda sincronizada pelo terminal (V10__chaves_idempotencia.sql).
+ * Tabela não particionada: a chave primária garante uma venda por chave, qualquer que seja a data.
+ */
+@Entity
+@Table(name = "chaves_idempotencia")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChaveIdempotencia {
+
+    @Id
+    @Column(length = 64)
+    private String chave;
+
+    @Column(name = "venda_id", nullable = false)
+    private Long vendaId;
+}
@@ -1,5 +1,6 @@
 package com.bagatelle.fidelidade.model;
 
+import com.bagatelle.fidelidade.util.NormalizadorTexto;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
@@ -45,6 +46,14 @@ public class Cliente {
     @Builder.Default
     private BigDecimal saldoCashback = BigDecimal.ZERO;
 
+    // Controle otimista: incrementada também pelas atualizações atômicas de saldo
+    @Version
+    private Long versao;
+
+    // Nome e CPF normalizados (minúsculas, sem acentos) para a busca por trigramas
+    @Column(name = "texto_busca", length = 200)
+    private String textoBusca;
+
     @OneToMany(mappedBy = "cliente", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Venda> vendas = new ArrayList<>();
@@ -59,5 +68,6 @@ public class Cliente {
         if (saldoCashback == null) {
             saldoCashback = BigDecimal.ZERO;
         }
+        textoBusca = NormalizadorTexto.textoBusca(nomeCompleto, cpf);
     }
 }
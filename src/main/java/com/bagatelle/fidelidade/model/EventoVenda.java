@@ -0,0 +1,50 @@
+package com.bagatelle.fidelidade.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox de vendas concluídas: gravado na mesma transação da venda e consumido em lote
+ * pelo GeradorCashbackJob, que gera o cashback fora do checkout.
+ */
+@Entity
+@Table(name = "eventos_venda")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventoVenda {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Uma venda gera um único evento (restrição única no banco)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "venda_id", nullable = false)
+    private Venda venda;
+
+    @Column(name = "criado_em", nullable = false)
+    private LocalDateTime criadoEm;
+
+    // Nulo enquanto o cashback da venda não foi gerado
+    @Column(name = "processado_em")
+    private LocalDateTime processadoEm;
+
+    // Falhas ao gerar o cashback; no limite de tentativas o evento sai da fila de pendentes
+    @Column(nullable = false)
+    private int tentativas;
+
+    @Column(name = "ultimo_erro", length = 1000)
+    private String ultimoErro;
+
+    @PrePersist
+    private void prePersist() {
+        if (criadoEm == null) {
+            criadoEm = LocalDateTime.now();
+        }
+    }
+}
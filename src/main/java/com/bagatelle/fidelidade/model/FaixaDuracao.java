@@ -0,0 +1,37 @@
+package com.bagatelle.fidelidade.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+/**
+ * Faixa do modelo de duração dos frascos: até volumeMaximoMl, o perfume dura "dias".
+ * Faixas sem marca valem para todas as marcas; faixas com marca têm prioridade.
+ * Faixa sem volume máximo cobre qualquer volume acima das demais.
+ */
+@Entity
+@Table(name = "faixas_duracao")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FaixaDuracao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Size(max = 100, message = "Marca deve ter no máximo 100 caracteres")
+    @Column(length = 100)
+    private String marca;
+
+    @Min(value = 1, message = "Volume máximo deve ser positivo")
+    @Column(name = "volume_maximo_ml")
+    private Integer volumeMaximoMl;
+
+    @NotNull(message = "Dias é obrigatório")
+    @Min(value = 1, message = "Duração deve ser de pelo menos 1 dia")
+    @Column(nullable = false)
+    private Integer dias;
+}
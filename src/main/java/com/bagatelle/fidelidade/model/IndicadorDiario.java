@@ -0,0 +1,40 @@
+package com.bagatelle.fidelidade.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Indicadores de vendas e cashback de um dia (V7__indicadores_vendas.sql). Vendas e cashback
+ * usado contam pela data da venda, cashback gerado pela data de geração e cashback expirado
+ * pela data de expiração. Mantidos pelo IndicadoresService; semana e mês são somas dos dias.
+ */
+@Entity
+@Table(name = "indicadores_diarios")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IndicadorDiario {
+
+    @Id
+    private LocalDate dia;
+
+    @Column(name = "quantidade_vendas", nullable = false)
+    private Long quantidadeVendas;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal faturamento;
+
+    @Column(name = "cashback_usado", nullable = false, precision = 14, scale = 2)
+    private BigDecimal cashbackUsado;
+
+    @Column(name = "cashback_gerado", nullable = false, precision = 14, scale = 2)
+    private BigDecimal cashbackGerado;
+
+    @Column(name = "cashback_expirado", nullable = false, precision = 14, scale = 2)
+    private BigDecimal cashbackExpirado;
+}
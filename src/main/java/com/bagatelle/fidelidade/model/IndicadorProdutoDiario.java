@@ -0,0 +1,45 @@
+package com.bagatelle.fidelidade.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Quantidade vendida e faturamento de um produto num dia, pela data da venda.
+ * Base do ranking de produtos e marcas dos indicadores.
+ */
+@Entity
+@Table(name = "indicadores_produtos_diarios")
+@IdClass(IndicadorProdutoDiario.Chave.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IndicadorProdutoDiario {
+
+    @Id
+    private LocalDate dia;
+
+    @Id
+    @Column(name = "produto_id")
+    private Long produtoId;
+
+    @Column(nullable = false)
+    private Long quantidade;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal faturamento;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+
+        private LocalDate dia;
+        private Long produtoId;
+    }
+}
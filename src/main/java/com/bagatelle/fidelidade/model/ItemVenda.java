@@ -5,6 +5,8 @@ import jakarta.validation.constraints.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "itens_venda")
@@ -15,8 +17,10 @@ import java.math.BigDecimal;
 @Builder
 public class ItemVenda {
 
+    // Sequence (em vez de IDENTITY) para permitir inserts em lote via JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "itens_venda_seq")
+    @SequenceGenerator(name = "itens_venda_seq", sequenceName = "itens_venda_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Venda é obrigatória")
@@ -24,6 +28,10 @@ public class ItemVenda {
     @JoinColumn(name = "venda_id", nullable = false)
     private Venda venda;
 
+    // Cópia da data da venda: coluna de partição de itens_venda (mesma partição mensal da venda)
+    @Column(name = "data_venda", nullable = false)
+    private LocalDateTime dataVenda;
+
     @NotNull(message = "Produto é obrigatório")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "produto_id", nullable = false)
@@ -39,7 +47,18 @@ public class ItemVenda {
     @Column(name = "preco_unitario", nullable = false, precision = 10, scale = 2)
     private BigDecimal precoUnitario;
 
+    // Data estimada em que o produto acaba (base das sugestões de recompra)
+    @Column(name = "data_previsao_termino")
+    private LocalDate dataPrevisaoTermino;
+
     @PrePersist
+    private void prePersist() {
+        if (dataVenda == null && venda != null) {
+            dataVenda = venda.getDataVenda();
+        }
+        validarCampos();
+    }
+
     @PreUpdate
     private void validarCampos() {
         if (quantidade != null && quantidade < 1) {
@@ -56,4 +75,16 @@ public class ItemVenda {
         }
         return precoUnitario.multiply(BigDecimal.valueOf(quantidade));
     }
+
+    /**
+     * Calcula a data prevista de término do produto a partir da data da venda.
+     * A duração de um frasco é multiplicada pela quantidade comprada.
+     */
+    public void atualizarPrevisaoTermino(LocalDate dataVenda) {
+        if (produto == null || quantidade == null || dataVenda == null) {
+            dataPrevisaoTermino = null;
+            return;
+        }
+        dataPrevisaoTermino = dataVenda.plusDays(produto.calcularDuracaoEstimadaDias() * quantidade);
+    }
 }
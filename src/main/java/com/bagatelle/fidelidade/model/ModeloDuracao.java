@@ -0,0 +1,119 @@
+package com.bagatelle.fidelidade.model;
+
+import com.bagatelle.fidelidade.util.NormalizadorTexto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de duração dos frascos montado a partir das faixas (tabela faixas_duracao).
+ * Imutável: as faixas ficam em arrays ordenados e a consulta é só comparação de inteiros.
+ */
+public final class ModeloDuracao {
+
+    // Padrão de 3 meses quando não dá para ler o volume
+    public static final int DURACAO_PADRAO_DIAS = 90;
+
+    /**
+     * Faixas originais do sistema (baseadas em 120ml durando ~3 meses).
+     * Usadas quando a tabela não tem faixas gerais; a migração V3 grava as mesmas.
+     */
+    public static final ModeloDuracao PADRAO = de(List.of(
+            faixa(30, 30),   // 30ml dura ~1 mês
+            faixa(50, 60),   // 50ml dura ~2 meses
+            faixa(100, 90),  // 100ml dura ~3 meses
+            faixa(150, 120), // 120-150ml dura ~4 meses
+            faixa(null, 150) // Frascos gigantes (200ml+)
+    ));
+
+    private final Faixas faixasGerais;
+    private final Map<String, Faixas> faixasPorMarca;
+
+    private ModeloDuracao(Faixas faixasGerais, Map<String, Faixas> faixasPorMarca) {
+        this.faixasGerais = faixasGerais;
+        this.faixasPorMarca = faixasPorMarca;
+    }
+
+    public static ModeloDuracao de(List<FaixaDuracao> faixas) {
+        List<FaixaDuracao> gerais = new ArrayList<>();
+        Map<String, List<FaixaDuracao>> porMarca = new HashMap<>();
+
+        for (FaixaDuracao faixa : faixas) {
+            String marca = NormalizadorTexto.normalizar(faixa.getMarca());
+            if (marca.isEmpty()) {
+                gerais.add(faixa);
+            } else {
+                porMarca.computeIfAbsent(marca, m -> new ArrayList<>()).add(faixa);
+            }
+        }
+
+        Map<String, Faixas> faixasPorMarca = new HashMap<>();
+        porMarca.forEach((marca, lista) -> faixasPorMarca.put(marca, Faixas.de(lista)));
+
+        Faixas faixasGerais = gerais.isEmpty() && PADRAO != null ? PADRAO.faixasGerais : Faixas.de(gerais);
+        return new ModeloDuracao(faixasGerais, Map.copyOf(faixasPorMarca));
+    }
+
+    /**
+     * Duração estimada de um frasco, em dias. As faixas da marca têm prioridade;
+     * se nenhuma cobrir o volume, valem as faixas gerais.
+     */
+    public int duracaoDias(String marca, int volumeMl) {
+        if (volumeMl <= 0) {
+            return DURACAO_PADRAO_DIAS;
+        }
+
+        if (!faixasPorMarca.isEmpty() && marca != null) {
+            Faixas daMarca = faixasPorMarca.get(NormalizadorTexto.normalizar(marca));
+            if (daMarca != null) {
+                int dias = daMarca.duracaoDias(volumeMl);
+                if (dias > 0) {
+                    return dias;
+                }
+            }
+        }
+
+        int dias = faixasGerais.duracaoDias(volumeMl);
+        return dias > 0 ? dias : DURACAO_PADRAO_DIAS;
+    }
+
+    private static FaixaDuracao faixa(Integer volumeMaximoMl, int dias) {
+        return FaixaDuracao.builder().volumeMaximoMl(volumeMaximoMl).dias(dias).build();
+    }
+
+    /**
+     * Faixas ordenadas pelo volume máximo; "sem limite" vira Integer.MAX_VALUE.
+     */
+    private record Faixas(int[] volumesMaximos, int[] dias) {
+
+        static Faixas de(List<FaixaDuracao> faixas) {
+            List<FaixaDuracao> ordenadas = new ArrayList<>(faixas);
+            ordenadas.sort(Comparator.comparingInt(Faixas::limite));
+
+            int[] volumesMaximos = new int[ordenadas.size()];
+            int[] dias = new int[ordenadas.size()];
+            for (int i = 0; i < ordenadas.size(); i++) {
+                volumesMaximos[i] = limite(ordenadas.get(i));
+                dias[i] = ordenadas.get(i).getDias();
+            }
+            return new Faixas(volumesMaximos, dias);
+        }
+
+        private static int limite(FaixaDuracao faixa) {
+            return faixa.getVolumeMaximoMl() != null ? faixa.getVolumeMaximoMl() : Integer.MAX_VALUE;
+        }
+
+        // Retorna 0 se nenhuma faixa cobrir o volume
+        int duracaoDias(int volumeMl) {
+            for (int i = 0; i < volumesMaximos.length; i++) {
+                if (volumeMl <= volumesMaximos[i]) {
+                    return dias[i];
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.bagatelle.fidelidade.model;
 
+import com.bagatelle.fidelidade.util.NormalizadorTexto;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
@@ -7,6 +8,9 @@ import lombok.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Entity
 @Table(name = "produtos")
@@ -41,6 +45,23 @@ public class Produto {
     @Column(name = "preco_venda", nullable = false, precision = 10, scale = 2)
     private BigDecimal precoVenda;
 
+    // Volume interpretado em ml (0 se não der para ler), mantido junto com o texto do volume
+    @Column(name = "volume_ml")
+    private Integer volumeMl;
+
+    // Duração informada manualmente; se vazia, vale a estimada pelo modelo de faixas
+    @Min(value = 1, message = "Duração deve ser de pelo menos 1 dia")
+    @Column(name = "duracao_dias")
+    private Integer duracaoDias;
+
+    // Duração efetiva do frasco, calculada pelo ModeloDuracaoService ao salvar
+    @Column(name = "duracao_estimada_dias")
+    private Integer duracaoEstimadaDias;
+
+    // Nome e marca normalizados (minúsculas, sem acentos) para a busca por trigramas
+    @Column(name = "texto_busca", length = 300)
+    private String textoBusca;
+
     @OneToMany(mappedBy = "produto")
     @Builder.Default
     private List<ItemVenda> itensVenda = new ArrayList<>();
@@ -51,19 +72,78 @@ public class Produto {
         if (precoVenda != null && precoVenda.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Preço de venda deve ser maior que zero");
         }
+        textoBusca = NormalizadorTexto.textoBusca(nomePerfume, marca);
+        volumeMl = interpretarVolumeMl(volume);
+    }
+
+    public void setVolume(String volume) {
+        this.volume = volume;
+        this.volumeMl = interpretarVolumeMl(volume);
     }
-    
+
     public Integer getVolumeNumerico() {
-        if (volume == null || volume.isEmpty()) {
-            return 0;
+        return volumeMl != null ? volumeMl : interpretarVolumeMl(volume);
+    }
+
+    /**
+     * Duração de um frasco deste produto, em dias. Usada para prever a data de recompra
+     * de cada item vendido. Produtos ainda não salvos usam as faixas padrão.
+     */
+    public long calcularDuracaoEstimadaDias() {
+        if (duracaoEstimadaDias != null) {
+            return duracaoEstimadaDias;
+        }
+        if (duracaoDias != null) {
+            return duracaoDias;
         }
-        try {
-            // Remove tudo que não for dígito (ex: "100ml" vira "100", "Kit 2un" vira "2")
-            String apenasNumeros = volume.replaceAll("\\D", "");
-            if (apenasNumeros.isEmpty()) return 0;
-            return Integer.parseInt(apenasNumeros);
-        } catch (NumberFormatException e) {
+        return ModeloDuracao.PADRAO.duracaoDias(marca, getVolumeNumerico());
+    }
+
+    // Quantidade opcional ("2x"), número e unidade. Ex: "100ml", "3.4 fl oz", "Kit 2x100ml"
+    private static final Pattern PADRAO_VOLUME = Pattern.compile(
+            "(?:(\\d+)\\s*[x×]\\s*)?(\\d+(?:[.,]\\d+)?)\\s*(fl\\.?\\s*oz|[a-zç]+)?",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+    private static final double ML_POR_ONCA = 29.5735;
+
+    /**
+     * Lê o volume em ml a partir do texto livre: "100ml" → 100, "3.4oz" → 101,
+     * "Kit 2x100ml" → 200, "1L" → 1000. Número sem unidade é tratado como ml;
+     * unidades que não são de volume ("Kit 3un") ou texto ilegível resultam em 0.
+     */
+    public static int interpretarVolumeMl(String volume) {
+        if (volume == null || volume.isBlank()) {
             return 0;
         }
+
+        Matcher matcher = PADRAO_VOLUME.matcher(volume);
+        int semUnidade = 0;
+        while (matcher.find()) {
+            double numero = Double.parseDouble(matcher.group(2).replace(',', '.'));
+            int multiplicador = matcher.group(1) != null ? Integer.parseInt(matcher.group(1)) : 1;
+            String unidade = matcher.group(3);
+
+            if (unidade == null) {
+                if (semUnidade == 0) {
+                    semUnidade = (int) Math.round(numero * multiplicador);
+                }
+                continue;
+            }
+
+            double fator = fatorMl(unidade.toLowerCase(Locale.ROOT).replaceAll("[\\s.]", ""));
+            if (fator > 0) {
+                return (int) Math.round(numero * fator * multiplicador);
+            }
+        }
+        return semUnidade;
+    }
+
+    private static double fatorMl(String unidade) {
+        return switch (unidade) {
+            case "ml" -> 1;
+            case "l", "lt", "litro", "litros" -> 1000;
+            case "oz", "floz" -> ML_POR_ONCA;
+            default -> 0;
+        };
     }
 }
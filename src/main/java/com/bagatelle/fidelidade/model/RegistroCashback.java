@@ -16,8 +16,10 @@ import java.time.LocalDate;
 @Builder
 public class RegistroCashback {
 
+    // Sequence (em vez de IDENTITY) para permitir inserts em lote via JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "registros_cashback_seq")
+    @SequenceGenerator(name = "registros_cashback_seq", sequenceName = "registros_cashback_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Cliente é obrigatório")
@@ -42,6 +44,11 @@ public class RegistroCashback {
     @Builder.Default
     private Boolean utilizado = false;
 
+    // Marcado pela varredura de expiração, que também debita o restante do saldo do cliente
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean expirado = false;
+
     @Column(name = "valor_utilizado", precision = 10, scale = 2)
     @Builder.Default
     private BigDecimal valorUtilizado = BigDecimal.ZERO;
@@ -61,6 +68,9 @@ public class RegistroCashback {
         if (utilizado == null) {
             utilizado = false;
         }
+        if (expirado == null) {
+            expirado = false;
+        }
         if (valorUtilizado == null) {
             valorUtilizado = BigDecimal.ZERO;
         }
@@ -71,6 +81,9 @@ public class RegistroCashback {
         if (utilizado == null) {
             utilizado = false;
         }
+        if (expirado == null) {
+            expirado = false;
+        }
         if (valorUtilizado == null) {
             valorUtilizado = BigDecimal.ZERO;
         }
@@ -86,7 +99,7 @@ public class RegistroCashback {
     }
 
     public BigDecimal getValorDisponivel() {
-        if (utilizado || isExpirado()) {
+        if (utilizado || expirado || isExpirado()) {
             return BigDecimal.ZERO;
         }
         return valor.subtract(valorUtilizado);
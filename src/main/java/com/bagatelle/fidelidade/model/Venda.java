@@ -40,6 +40,10 @@ public class Venda {
     @Builder.Default
     private BigDecimal valorCashbackUsado = BigDecimal.ZERO;
 
+    // Gerada pelo terminal nas vendas sincronizadas em lote; nula nas registradas pela tela
+    @Column(name = "chave_idempotencia", length = 64, unique = true)
+    private String chaveIdempotencia;
+
     @OneToMany(mappedBy = "venda", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<ItemVenda> itens = new ArrayList<>();
@@ -64,6 +68,7 @@ public class Venda {
     public void adicionarItem(ItemVenda item) {
         itens.add(item);
         item.setVenda(this);
+        item.setDataVenda(dataVenda);
     }
 
     public void removerItem(ItemVenda item) {
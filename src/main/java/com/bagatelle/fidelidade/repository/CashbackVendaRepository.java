@@ -0,0 +1,18 @@
+package com.bagatelle.fidelidade.repository;
+
+import com.bagatelle.fidelidade.model.CashbackVenda;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CashbackVendaRepository extends JpaRepository<CashbackVenda, Long> {
+
+    // Geração de cashback idempotente: vendas do lote que já têm registro
+    @Query("SELECT c.vendaId FROM CashbackVenda c WHERE c.vendaId IN :vendaIds")
+    List<Long> buscarVendasComCashback(@Param("vendaIds") Collection<Long> vendaIds);
+}
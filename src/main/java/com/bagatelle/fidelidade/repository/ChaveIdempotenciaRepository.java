@@ -0,0 +1,18 @@
+package com.bagatelle.fidelidade.repository;
+
+import com.bagatelle.fidelidade.model.ChaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChaveIdempotenciaRepository extends JpaRepository<ChaveIdempotencia, String> {
+
+    // Sincronização em lote: vendas já recebidas entre as chaves enviadas pelo terminal
+    @Query("SELECT c FROM ChaveIdempotencia c WHERE c.chave IN :chaves")
+    List<ChaveIdempotencia> buscarPorChaves(@Param("chaves") Collection<String> chaves);
+}
@@ -1,11 +1,15 @@
 package com.bagatelle.fidelidade.repository;
 
 import com.bagatelle.fidelidade.model.Cliente;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,11 +20,64 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
 
     boolean existsByCpf(String cpf);
 
+    // Usado pela importação: confere um lote inteiro de CPFs numa só consulta
+    @Query("SELECT c.cpf FROM Cliente c WHERE c.cpf IN :cpfs")
+    List<String> buscarCpfsExistentes(@Param("cpfs") Collection<String> cpfs);
+
+    // texto_busca tem índice GIN de trigramas (ver db/migration); o termo deve vir normalizado
     @Query("SELECT c FROM Cliente c WHERE " +
-           "LOWER(c.nomeCompleto) LIKE LOWER(CONCAT('%', :termo, '%')) OR " +
-           "c.cpf LIKE CONCAT('%', :termo, '%')")
-    List<Cliente> buscarPorCpfOuNome(@Param("termo") String termo);
+           "c.textoBusca LIKE CONCAT('%', :termo, '%') " +
+           "ORDER BY c.nomeCompleto")
+    List<Cliente> buscarPorCpfOuNome(@Param("termo") String termo, Limit limite);
 
     @Query("SELECT c FROM Cliente c ORDER BY c.nomeCompleto")
     List<Cliente> findAllOrdenados();
+
+    // Saldo e versão lidos direto do banco, sem passar pela entidade gerenciada
+    @Query("SELECT c.saldoCashback AS saldoCashback, c.versao AS versao " +
+           "FROM Cliente c WHERE c.id = :clienteId")
+    Optional<SaldoCashbackVersao> buscarSaldoCashbackVersao(@Param("clienteId") Long clienteId);
+
+    // Cabeçalho do histórico do cliente; versão e últimos IDs de venda e cashback compõem o ETag
+    @Query("SELECT c.id AS id, c.nomeCompleto AS nomeCompleto, c.cpf AS cpf, " +
+           "c.telefone AS telefone, c.email AS email, " +
+           "c.saldoCashback AS saldoCashback, c.versao AS versao, " +
+           "(SELECT MAX(v.id) FROM Venda v WHERE v.cliente = c) AS ultimaVendaId, " +
+           "(SELECT MAX(r.id) FROM RegistroCashback r WHERE r.cliente = c) AS ultimoRegistroId " +
+           "FROM Cliente c WHERE c.id = :clienteId")
+    Optional<ResumoHistorico> buscarResumoHistorico(@Param("clienteId") Long clienteId);
+
+    @Modifying
+    @Query("UPDATE Cliente c " +
+           "SET c.saldoCashback = c.saldoCashback + :valor, c.versao = c.versao + 1 " +
+           "WHERE c.id = :clienteId")
+    int adicionarSaldoCashback(@Param("clienteId") Long clienteId,
+                               @Param("valor") BigDecimal valor);
+
+    @Modifying
+    @Query("UPDATE Cliente c " +
+           "SET c.saldoCashback = c.saldoCashback - :valor, c.versao = c.versao + 1 " +
+           "WHERE c.id = :clienteId " +
+           "AND c.versao = :versao " +
+           "AND c.saldoCashback >= :valor")
+    int subtrairSaldoCashback(@Param("clienteId") Long clienteId,
+                              @Param("valor") BigDecimal valor,
+                              @Param("versao") Long versao);
+
+    interface SaldoCashbackVersao {
+        BigDecimal getSaldoCashback();
+        Long getVersao();
+    }
+
+    interface ResumoHistorico {
+        Long getId();
+        String getNomeCompleto();
+        String getCpf();
+        String getTelefone();
+        String getEmail();
+        BigDecimal getSaldoCashback();
+        Long getVersao();
+        Long getUltimaVendaId();
+        Long getUltimoRegistroId();
+    }
 }
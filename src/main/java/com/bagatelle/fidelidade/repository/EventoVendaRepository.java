@@ -0,0 +1,78 @@
+package com.bagatelle.fidelidade.repository;
+
+import com.bagatelle.fidelidade.model.EventoVenda;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EventoVendaRepository extends JpaRepository<EventoVenda, Long> {
+
+    // Lote de eventos pendentes, mais antigos primeiro. Timeout -2 = SKIP LOCKED no PostgreSQL:
+    // instâncias concorrentes pegam lotes diferentes em vez de esperar umas pelas outras.
+    // Eventos que já falharam maxTentativas vezes ficam de fora (contados em contarFalhas)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EventoVenda e " +
+           "WHERE e.processadoEm IS NULL " +
+           "AND e.tentativas < :maxTentativas " +
+           "ORDER BY e.id")
+    List<EventoVenda> buscarPendentes(@Param("maxTentativas") int maxTentativas, Limit limite);
+
+    // Um evento do lote, para processar sozinho depois que o lote falhou (vazio se já processado
+    // ou bloqueado por outra instância)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EventoVenda e " +
+           "WHERE e.id = :id " +
+           "AND e.processadoEm IS NULL")
+    List<EventoVenda> buscarPendente(@Param("id") Long id);
+
+    @Query("SELECT e.id FROM EventoVenda e " +
+           "WHERE e.processadoEm IS NULL " +
+           "AND e.tentativas < :maxTentativas " +
+           "ORDER BY e.id")
+    List<Long> buscarIdsPendentes(@Param("maxTentativas") int maxTentativas, Limit limite);
+
+    @Modifying
+    @Query("UPDATE EventoVenda e " +
+           "SET e.tentativas = e.tentativas + 1, e.ultimoErro = :erro " +
+           "WHERE e.id = :id")
+    int registrarFalha(@Param("id") Long id, @Param("erro") String erro);
+
+    // Eventos que esgotaram as tentativas, bloqueados até reabrir voltar com eles para a fila
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e.id FROM EventoVenda e " +
+           "WHERE e.processadoEm IS NULL " +
+           "AND e.tentativas >= :maxTentativas")
+    List<Long> buscarIdsFalhas(@Param("maxTentativas") int maxTentativas);
+
+    // Dia das vendas no calendário do banco, o mesmo dos indicadores
+    @Query("SELECT DISTINCT CAST(v.dataVenda AS LocalDate) FROM EventoVenda e JOIN e.venda v WHERE e.id IN :ids")
+    List<LocalDate> buscarDiasVenda(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE EventoVenda e SET e.tentativas = 0 WHERE e.id IN :ids")
+    int reabrir(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(e) FROM EventoVenda e WHERE e.processadoEm IS NULL AND e.tentativas < :maxTentativas")
+    long contarPendentes(@Param("maxTentativas") int maxTentativas);
+
+    @Query("SELECT COUNT(e) FROM EventoVenda e WHERE e.processadoEm IS NULL AND e.tentativas >= :maxTentativas")
+    long contarFalhas(@Param("maxTentativas") int maxTentativas);
+
+    @Query("SELECT MIN(e.criadoEm) FROM EventoVenda e WHERE e.processadoEm IS NULL AND e.tentativas < :maxTentativas")
+    LocalDateTime buscarCriacaoPendenteMaisAntiga(@Param("maxTentativas") int maxTentativas);
+}
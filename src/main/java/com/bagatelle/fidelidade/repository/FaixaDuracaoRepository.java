@@ -0,0 +1,9 @@
+package com.bagatelle.fidelidade.repository;
+
+import com.bagatelle.fidelidade.model.FaixaDuracao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FaixaDuracaoRepository extends JpaRepository<FaixaDuracao, Long> {
+}
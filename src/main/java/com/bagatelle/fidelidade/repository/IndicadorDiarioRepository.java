@@ -0,0 +1,49 @@
+package com.bagatelle.fidelidade.repository;
+
+import com.bagatelle.fidelidade.model.IndicadorDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IndicadorDiarioRepository extends JpaRepository<IndicadorDiario, LocalDate> {
+
+    @Query("SELECT i FROM IndicadorDiario i " +
+           "WHERE i.dia BETWEEN :inicio AND :fim " +
+           "ORDER BY i.dia")
+    List<IndicadorDiario> buscarPorPeriodo(@Param("inicio") LocalDate inicio,
+                                           @Param("fim") LocalDate fim);
+
+    // Soma as vendas de um lote do outbox aos dias das vendas. A data mínima (venda mais antiga
+    // do lote) restringe a busca às partições do período
+    @Modifying
+    @Query(value = "INSERT INTO indicadores_diarios (dia, quantidade_vendas, faturamento, cashback_usado) " +
+                   "SELECT CAST(data_venda AS date), COUNT(*), SUM(valor_total), SUM(valor_cashback_usado) " +
+                   "FROM vendas " +
+                   "WHERE id IN (:vendaIds) AND data_venda >= :dataMinima " +
+                   "GROUP BY CAST(data_venda AS date) " +
+                   "ON CONFLICT (dia) DO UPDATE SET " +
+                   "quantidade_vendas = indicadores_diarios.quantidade_vendas + EXCLUDED.quantidade_vendas, " +
+                   "faturamento = indicadores_diarios.faturamento + EXCLUDED.faturamento, " +
+                   "cashback_usado = indicadores_diarios.cashback_usado + EXCLUDED.cashback_usado",
+           nativeQuery = true)
+    int acumularVendas(@Param("vendaIds") Collection<Long> vendaIds,
+                       @Param("dataMinima") LocalDateTime dataMinima);
+
+    @Modifying
+    @Query(value = "INSERT INTO indicadores_diarios (dia, cashback_gerado) " +
+                   "VALUES (:dia, :valor) " +
+                   "ON CONFLICT (dia) DO UPDATE SET " +
+                   "cashback_gerado = indicadores_diarios.cashback_gerado + EXCLUDED.cashback_gerado",
+           nativeQuery = true)
+    int acumularCashbackGerado(@Param("dia") LocalDate dia,
+                               @Param("valor") BigDecimal valor);
+}
@@ -0,0 +1,69 @@
+package com.bagatelle.fidelidade.repository;
+
+import com.bagatelle.fidelidade.model.IndicadorProdutoDiario;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IndicadorProdutoDiarioRepository
+        extends JpaRepository<IndicadorProdutoDiario, IndicadorProdutoDiario.Chave> {
+
+    // Rankings do período: a marca é a atual do produto
+
+    @Query("SELECT p.id AS produtoId, p.nomePerfume AS nome, p.marca AS marca, " +
+           "SUM(i.quantidade) AS quantidade, SUM(i.faturamento) AS faturamento " +
+           "FROM IndicadorProdutoDiario i JOIN Produto p ON p.id = i.produtoId " +
+           "WHERE i.dia BETWEEN :inicio AND :fim " +
+           "GROUP BY p.id, p.nomePerfume, p.marca " +
+           "ORDER BY SUM(i.faturamento) DESC, p.id")
+    List<RankingProduto> rankingProdutos(@Param("inicio") LocalDate inicio,
+                                  @Param("fim") LocalDate fim,
+                                  Limit limite);
+
+    @Query("SELECT p.marca AS marca, SUM(i.quantidade) AS quantidade, SUM(i.faturamento) AS faturamento " +
+           "FROM IndicadorProdutoDiario i JOIN Produto p ON p.id = i.produtoId " +
+           "WHERE i.dia BETWEEN :inicio AND :fim " +
+           "GROUP BY p.marca " +
+           "ORDER BY SUM(i.faturamento) DESC, p.marca")
+    List<RankingMarca> rankingMarcas(@Param("inicio") LocalDate inicio,
+                                @Param("fim") LocalDate fim,
+                                Limit limite);
+
+    // Soma os itens das vendas de um lote do outbox (ver IndicadorDiarioRepository.acumularVendas)
+    @Modifying
+    @Query(value = "INSERT INTO indicadores_produtos_diarios (dia, produto_id, quantidade, faturamento) " +
+                   "SELECT CAST(data_venda AS date), produto_id, SUM(quantidade), SUM(quantidade * preco_unitario) " +
+                   "FROM itens_venda " +
+                   "WHERE venda_id IN (:vendaIds) AND data_venda >= :dataMinima " +
+                   "GROUP BY CAST(data_venda AS date), produto_id " +
+                   "ON CONFLICT (dia, produto_id) DO UPDATE SET " +
+                   "quantidade = indicadores_produtos_diarios.quantidade + EXCLUDED.quantidade, " +
+                   "faturamento = indicadores_produtos_diarios.faturamento + EXCLUDED.faturamento",
+           nativeQuery = true)
+    int acumularVendas(@Param("vendaIds") Collection<Long> vendaIds,
+                       @Param("dataMinima") LocalDateTime dataMinima);
+
+    interface RankingProduto {
+        Long getProdutoId();
+        String getNome();
+        String getMarca();
+        Long getQuantidade();
+        BigDecimal getFaturamento();
+    }
+
+    interface RankingMarca {
+        String getMarca();
+        Long getQuantidade();
+        BigDecimal getFaturamento();
+    }
+}
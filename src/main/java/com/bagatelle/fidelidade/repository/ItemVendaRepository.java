@@ -2,10 +2,12 @@ package com.bagatelle.fidelidade.repository;
 
 import com.bagatelle.fidelidade.model.ItemVenda;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,4 +18,33 @@ public interface ItemVendaRepository extends JpaRepository<ItemVenda, Long> {
 
     @Query("SELECT i FROM ItemVenda i WHERE i.produto.id = :produtoId")
     List<ItemVenda> findByProdutoId(@Param("produtoId") Long produtoId);
+
+    // Os itens têm a data da venda (coluna de partição), então a atualização não precisa de vendas
+    @Modifying
+    @Query(value = "UPDATE itens_venda " +
+                   "SET data_previsao_termino = CAST(data_venda AS date) + (CAST(:duracaoDias AS integer) * quantidade) " +
+                   "WHERE produto_id = :produtoId",
+           nativeQuery = true)
+    int recalcularPrevisaoTermino(@Param("produtoId") Long produtoId,
+                                  @Param("duracaoDias") long duracaoDias);
+
+    // Produtos cuja duração mudou, numa única atualização: a duração vem da própria linha do produto
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE itens_venda " +
+                   "SET data_previsao_termino = CAST(data_venda AS date) + " +
+                   "    (SELECT p.duracao_estimada_dias FROM produtos p WHERE p.id = itens_venda.produto_id) * quantidade " +
+                   "WHERE produto_id IN (:produtoIds)",
+           nativeQuery = true)
+    int recalcularPrevisaoTerminoProdutos(@Param("produtoIds") Collection<Long> produtoIds);
+
+    // Itens ainda sem previsão (ex: gravados antes da V3), de todos os produtos de uma vez.
+    // Usa o índice de data_previsao_termino: sem pendentes, não lê as partições
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE itens_venda " +
+                   "SET data_previsao_termino = CAST(data_venda AS date) + " +
+                   "    (SELECT p.duracao_estimada_dias FROM produtos p WHERE p.id = itens_venda.produto_id) * quantidade " +
+                   "WHERE data_previsao_termino IS NULL " +
+                   "AND produto_id IN (SELECT p.id FROM produtos p WHERE p.duracao_estimada_dias IS NOT NULL)",
+           nativeQuery = true)
+    int preencherPrevisoesPendentes();
 }
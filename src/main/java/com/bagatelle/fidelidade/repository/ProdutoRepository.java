@@ -1,6 +1,7 @@
 package com.bagatelle.fidelidade.repository;
 
 import com.bagatelle.fidelidade.model.Produto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,10 +12,11 @@ import java.util.List;
 @Repository
 public interface ProdutoRepository extends JpaRepository<Produto, Long> {
 
+    // texto_busca tem índice GIN de trigramas (ver db/migration); o termo deve vir normalizado
     @Query("SELECT p FROM Produto p WHERE " +
-           "LOWER(p.nomePerfume) LIKE LOWER(CONCAT('%', :termo, '%')) OR " +
-           "LOWER(p.marca) LIKE LOWER(CONCAT('%', :termo, '%'))")
-    List<Produto> buscarPorNomeOuMarca(@Param("termo") String termo);
+           "p.textoBusca LIKE CONCAT('%', :termo, '%') " +
+           "ORDER BY p.nomePerfume")
+    List<Produto> buscarPorNomeOuMarca(@Param("termo") String termo, Limit limite);
 
     @Query("SELECT p FROM Produto p ORDER BY p.nomePerfume")
     List<Produto> findAllOrdenados();
@@ -1,44 +1,107 @@
 package com.bagatelle.fidelidade.repository;
 
+import com.bagatelle.fidelidade.dto.AlertaCashbackDTO;
 import com.bagatelle.fidelidade.model.RegistroCashback;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Repository
 public interface RegistroCashbackRepository extends JpaRepository<RegistroCashback, Long> {
 
-    @Query("SELECT r FROM RegistroCashback r " +
-           "JOIN FETCH r.cliente " +
+    // Cashback a expirar: contador e lista do dashboard (prévia limitada ou tela completa)
+
+    @Query("SELECT COUNT(r) FROM RegistroCashback r " +
            "WHERE r.dataExpiracao BETWEEN :hoje AND :dataLimite " +
            "AND r.utilizado = false " +
-           "AND r.dataExpiracao > :hoje " +
-           "ORDER BY r.dataExpiracao ASC")
-    List<RegistroCashback> buscarCashbackExpirando(@Param("hoje") LocalDate hoje,
-                                                    @Param("dataLimite") LocalDate dataLimite);
+           "AND r.dataExpiracao > :hoje")
+    long contarCashbackExpirando(@Param("hoje") LocalDate hoje,
+                                 @Param("dataLimite") LocalDate dataLimite);
 
-    @Query("SELECT r FROM RegistroCashback r " +
-           "WHERE r.cliente.id = :clienteId " +
+    @Query("SELECT new com.bagatelle.fidelidade.dto.AlertaCashbackDTO(" +
+           "r.id, c.nomeCompleto, c.telefone, r.valor, r.dataExpiracao) " +
+           "FROM RegistroCashback r JOIN r.cliente c " +
+           "WHERE r.dataExpiracao BETWEEN :hoje AND :dataLimite " +
            "AND r.utilizado = false " +
            "AND r.dataExpiracao > :hoje " +
-           "ORDER BY r.dataExpiracao ASC")
-    List<RegistroCashback> buscarPorClienteNaoUtilizado(@Param("clienteId") Long clienteId,
-                                                         @Param("hoje") LocalDate hoje);
+           "ORDER BY r.dataExpiracao ASC, r.id ASC")
+    List<AlertaCashbackDTO> buscarCashbackExpirando(@Param("hoje") LocalDate hoje,
+                                                    @Param("dataLimite") LocalDate dataLimite,
+                                                    Limit limite);
+
+    // Alocação FIFO do resgate numa única consulta: a soma acumulada do disponível, na ordem
+    // de expiração, diz quanto cada registro cobre. Entram só os registros necessários; o último
+    // é parcialmente consumido. Se o disponível não bastar, a soma das alocações fica abaixo do valor.
+    @Query(value = "SELECT id AS \"registroId\", data_expiracao AS \"dataExpiracao\", " +
+                   "       LEAST(disponivel, :valor - (acumulado - disponivel)) AS \"valorAlocado\", " +
+                   "       utilizado_antes + LEAST(disponivel, :valor - (acumulado - disponivel)) >= valor AS \"esgotado\" " +
+                   "FROM ( " +
+                   "    SELECT id, valor, data_expiracao, " +
+                   "           COALESCE(valor_utilizado, 0) AS utilizado_antes, " +
+                   "           valor - COALESCE(valor_utilizado, 0) AS disponivel, " +
+                   "           SUM(valor - COALESCE(valor_utilizado, 0)) " +
+                   "               OVER (ORDER BY data_expiracao, id ROWS UNBOUNDED PRECEDING) AS acumulado " +
+                   "    FROM registros_cashback " +
+                   "    WHERE cliente_id = :clienteId AND utilizado = false AND data_expiracao > :hoje " +
+                   ") fila " +
+                   "WHERE acumulado - disponivel < :valor " +
+                   "ORDER BY data_expiracao, id",
+           nativeQuery = true)
+    List<AlocacaoCashback> alocarFifo(@Param("clienteId") Long clienteId,
+                                      @Param("valor") BigDecimal valor,
+                                      @Param("hoje") LocalDate hoje);
 
     @Query("SELECT r FROM RegistroCashback r " +
            "WHERE r.cliente.id = :clienteId " +
            "ORDER BY r.dataGeracao DESC")
     List<RegistroCashback> buscarPorCliente(@Param("clienteId") Long clienteId);
 
-    @Query("SELECT COALESCE(SUM(r.valor - r.valorUtilizado), 0) " +
-           "FROM RegistroCashback r " +
-           "WHERE r.cliente.id = :clienteId " +
-           "AND r.utilizado = false " +
-           "AND r.dataExpiracao > :hoje")
-    java.math.BigDecimal calcularSaldoDisponivel(@Param("clienteId") Long clienteId,
-                                                  @Param("hoje") LocalDate hoje);
+    // Expira um lote de registros vencidos e debita o restante de cada um do saldo do cliente,
+    // tudo num único comando. SKIP LOCKED permite varreduras concorrentes sem bloqueio.
+    // O restante expirado também é somado ao indicador do dia de expiração (indicadores_diarios).
+    // Retorna o número de clientes debitados: zero significa que não há mais registros vencidos.
+    @Modifying
+    @Query(value = "WITH lote AS ( " +
+                   "    SELECT id, cliente_id, data_expiracao, valor - COALESCE(valor_utilizado, 0) AS restante " +
+                   "    FROM registros_cashback " +
+                   "    WHERE utilizado = false AND expirado = false AND data_expiracao <= :hoje " +
+                   "    ORDER BY id " +
+                   "    LIMIT :tamanhoLote " +
+                   "    FOR UPDATE SKIP LOCKED " +
+                   "), marcados AS ( " +
+                   "    UPDATE registros_cashback r SET expirado = true " +
+                   "    FROM lote WHERE r.id = lote.id AND r.data_expiracao = lote.data_expiracao " +
+                   "    RETURNING lote.cliente_id, lote.data_expiracao, lote.restante " +
+                   "), indicadores AS ( " +
+                   "    INSERT INTO indicadores_diarios (dia, cashback_expirado) " +
+                   "    SELECT data_expiracao, SUM(restante) FROM marcados GROUP BY data_expiracao " +
+                   "    ON CONFLICT (dia) DO UPDATE SET " +
+                   "    cashback_expirado = indicadores_diarios.cashback_expirado + EXCLUDED.cashback_expirado " +
+                   ") " +
+                   "UPDATE clientes c " +
+                   "SET saldo_cashback = GREATEST(c.saldo_cashback - d.total, 0), versao = c.versao + 1 " +
+                   "FROM (SELECT cliente_id, SUM(restante) AS total FROM marcados GROUP BY cliente_id) d " +
+                   "WHERE c.id = d.cliente_id",
+           nativeQuery = true)
+    int expirarLote(@Param("hoje") LocalDate hoje,
+                    @Param("tamanhoLote") int tamanhoLote);
+
+    /**
+     * Parte de um resgate coberta por um registro de cashback. Esgotado indica que
+     * o registro fica totalmente utilizado depois da alocação. A data de expiração
+     * (coluna de partição) localiza o registro na atualização.
+     */
+    interface AlocacaoCashback {
+        Long getRegistroId();
+        LocalDate getDataExpiracao();
+        BigDecimal getValorAlocado();
+        Boolean getEsgotado();
+    }
 }
@@ -1,22 +1,32 @@
 package com.bagatelle.fidelidade.repository;
 
+import com.bagatelle.fidelidade.dto.SugestaoRecompraDTO;
+import com.bagatelle.fidelidade.dto.VendaDTO;
 import com.bagatelle.fidelidade.model.Venda;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface VendaRepository extends JpaRepository<Venda, Long> {
 
+    // vendas e itens_venda são particionadas por mês de data_venda (V6): o filtro de data também
+    // nos itens (que têm a data da venda) faz o PostgreSQL ler só as partições do período nas duas tabelas
+
     @Query("SELECT v FROM Venda v " +
            "JOIN FETCH v.cliente " +
            "JOIN FETCH v.itens i " +
            "JOIN FETCH i.produto " +
            "WHERE v.dataVenda BETWEEN :inicio AND :fim " +
+           "AND i.dataVenda BETWEEN :inicio AND :fim " +
            "ORDER BY v.dataVenda DESC")
     List<Venda> buscarVendasEntreDatas(@Param("inicio") LocalDateTime inicio,
                                         @Param("fim") LocalDateTime fim);
@@ -27,10 +37,52 @@ public interface VendaRepository extends JpaRepository<Venda, Long> {
            "JOIN FETCH i.produto p " +
            "WHERE v.dataVenda >= :dataInicio " +
            "AND v.dataVenda < :dataFim " +
+           "AND i.dataVenda >= :dataInicio " +
+           "AND i.dataVenda < :dataFim " +
            "ORDER BY v.dataVenda DESC")
     List<Venda> buscarVendasDe5MesesAtras(@Param("dataInicio") LocalDateTime dataInicio,
                                            @Param("dataFim") LocalDateTime dataFim);
 
+    @Query("SELECT v FROM Venda v " +
+           "JOIN FETCH v.cliente " +
+           "JOIN FETCH v.itens i " +
+           "JOIN FETCH i.produto " +
+           "WHERE v.dataVenda >= :dataMinimaVenda " +
+           "AND v.id IN (SELECT iv.venda.id FROM ItemVenda iv " +
+           "             WHERE iv.dataVenda >= :dataMinimaVenda " +
+           "             AND iv.dataPrevisaoTermino > :inicioJanela " +
+           "             AND iv.dataPrevisaoTermino < :fimJanela) " +
+           "ORDER BY v.dataVenda DESC")
+    List<Venda> buscarSugestoesRecompra(@Param("dataMinimaVenda") LocalDateTime dataMinimaVenda,
+                                        @Param("inicioJanela") LocalDate inicioJanela,
+                                        @Param("fimJanela") LocalDate fimJanela);
+
+    // Mesmo filtro de buscarSugestoesRecompra, para o dashboard (contador e prévia)
+
+    @Query("SELECT COUNT(v) FROM Venda v " +
+           "WHERE v.dataVenda >= :dataMinimaVenda " +
+           "AND v.id IN (SELECT iv.venda.id FROM ItemVenda iv " +
+           "             WHERE iv.dataVenda >= :dataMinimaVenda " +
+           "             AND iv.dataPrevisaoTermino > :inicioJanela " +
+           "             AND iv.dataPrevisaoTermino < :fimJanela)")
+    long contarSugestoesRecompra(@Param("dataMinimaVenda") LocalDateTime dataMinimaVenda,
+                                 @Param("inicioJanela") LocalDate inicioJanela,
+                                 @Param("fimJanela") LocalDate fimJanela);
+
+    @Query("SELECT new com.bagatelle.fidelidade.dto.SugestaoRecompraDTO(" +
+           "v.id, c.nomeCompleto, c.telefone, v.dataVenda, v.valorTotal) " +
+           "FROM Venda v JOIN v.cliente c " +
+           "WHERE v.dataVenda >= :dataMinimaVenda " +
+           "AND v.id IN (SELECT iv.venda.id FROM ItemVenda iv " +
+           "             WHERE iv.dataVenda >= :dataMinimaVenda " +
+           "             AND iv.dataPrevisaoTermino > :inicioJanela " +
+           "             AND iv.dataPrevisaoTermino < :fimJanela) " +
+           "ORDER BY v.dataVenda DESC, v.id DESC")
+    List<SugestaoRecompraDTO> buscarPreviaSugestoesRecompra(@Param("dataMinimaVenda") LocalDateTime dataMinimaVenda,
+                                                            @Param("inicioJanela") LocalDate inicioJanela,
+                                                            @Param("fimJanela") LocalDate fimJanela,
+                                                            Limit limite);
+
     @Query("SELECT v FROM Venda v " +
            "JOIN FETCH v.cliente " +
            "LEFT JOIN FETCH v.itens " +
@@ -38,9 +90,95 @@ public interface VendaRepository extends JpaRepository<Venda, Long> {
            "ORDER BY v.dataVenda DESC")
     List<Venda> buscarPorCliente(@Param("clienteId") Long clienteId);
 
+    // Detalhe da venda: cliente, itens e produtos numa única consulta
     @Query("SELECT v FROM Venda v " +
-           "LEFT JOIN FETCH v.cliente " +
-           "LEFT JOIN FETCH v.itens " +
-           "ORDER BY v.dataVenda DESC")
-    List<Venda> findAllOrdenadas();
+           "JOIN FETCH v.cliente " +
+           "LEFT JOIN FETCH v.itens i " +
+           "LEFT JOIN FETCH i.produto " +
+           "WHERE v.id = :id")
+    Optional<Venda> buscarComItens(@Param("id") Long id);
+
+    // Paginação por cursor (keyset) em (dataVenda, id): o custo não depende da profundidade da página.
+    // O "dataVenda <= :dataVenda" à frente do OR é o que vira intervalo no índice (data_venda, id);
+    // o restante só descarta as vendas do mesmo instante já mostradas.
+    // A listagem não mostra itens, então a página sai direto como DTO, sem carregar entidades.
+
+    @Query("SELECT new com.bagatelle.fidelidade.dto.VendaDTO(" +
+           "v.id, v.dataVenda, c.id, c.nomeCompleto, c.cpf, c.telefone, v.valorTotal, v.valorCashbackUsado) " +
+           "FROM Venda v JOIN v.cliente c " +
+           "ORDER BY v.dataVenda DESC, v.id DESC")
+    List<VendaDTO> buscarPrimeiraPagina(Limit limite);
+
+    @Query("SELECT new com.bagatelle.fidelidade.dto.VendaDTO(" +
+           "v.id, v.dataVenda, c.id, c.nomeCompleto, c.cpf, c.telefone, v.valorTotal, v.valorCashbackUsado) " +
+           "FROM Venda v JOIN v.cliente c " +
+           "WHERE v.dataVenda <= :dataVenda " +
+           "AND (v.dataVenda < :dataVenda OR v.id < :id) " +
+           "ORDER BY v.dataVenda DESC, v.id DESC")
+    List<VendaDTO> buscarPaginaApos(@Param("dataVenda") LocalDateTime dataVenda,
+                                    @Param("id") Long id,
+                                    Limit limite);
+
+    // Histórico do cliente: uma página de vendas com itens, nomes dos produtos e o cashback
+    // gerado por cada venda, numa única consulta. A página é limitada na CTE (em vendas,
+    // não em linhas), então cada venda vem completa; uma linha por item.
+    // Cada venda tem no máximo um registro de cashback: a restrição única da V4 em venda_id virou
+    // (venda_id, data_expiracao) com as partições da V6, e a garantia por venda é a chave de
+    // cashback_vendas (V9), gravada junto com o registro em CashbackService.
+
+    String HISTORICO_INICIO =
+            "WITH pagina AS (" +
+            "  SELECT v.id, v.data_venda, v.valor_total, v.valor_cashback_usado FROM vendas v " +
+            "  WHERE v.cliente_id = :clienteId ";
+
+    String HISTORICO_FIM =
+            "  ORDER BY v.data_venda DESC, v.id DESC LIMIT :limite) " +
+            "SELECT p.id AS \"vendaId\", p.data_venda AS \"dataVenda\", " +
+            "p.valor_total AS \"valorTotal\", p.valor_cashback_usado AS \"valorCashbackUsado\", " +
+            "i.id AS \"itemId\", i.produto_id AS \"produtoId\", pr.nome_perfume AS \"nomePerfume\", " +
+            "pr.marca AS \"marca\", pr.volume AS \"volume\", i.quantidade AS \"quantidade\", " +
+            "i.preco_unitario AS \"precoUnitario\", i.data_previsao_termino AS \"dataPrevisaoTermino\", " +
+            "r.id AS \"registroId\", r.valor AS \"valorCashback\", " +
+            "r.valor_utilizado AS \"valorCashbackUtilizado\", r.data_geracao AS \"dataGeracaoCashback\", " +
+            "r.data_expiracao AS \"dataExpiracaoCashback\", r.utilizado AS \"cashbackUtilizado\", " +
+            "r.expirado AS \"cashbackExpirado\" " +
+            "FROM pagina p " +
+            "LEFT JOIN itens_venda i ON i.venda_id = p.id AND i.data_venda = p.data_venda " +
+            "LEFT JOIN produtos pr ON pr.id = i.produto_id " +
+            "LEFT JOIN registros_cashback r ON r.venda_id = p.id " +
+            "ORDER BY p.data_venda DESC, p.id DESC, i.id";
+
+    @Query(value = HISTORICO_INICIO + HISTORICO_FIM, nativeQuery = true)
+    List<LinhaHistorico> buscarHistoricoPrimeiraPagina(@Param("clienteId") Long clienteId,
+                                                       @Param("limite") int limite);
+
+    @Query(value = HISTORICO_INICIO +
+           "AND v.data_venda <= :dataVenda AND (v.data_venda < :dataVenda OR v.id < :id) " +
+           HISTORICO_FIM, nativeQuery = true)
+    List<LinhaHistorico> buscarHistoricoPaginaApos(@Param("clienteId") Long clienteId,
+                                                   @Param("dataVenda") LocalDateTime dataVenda,
+                                                   @Param("id") Long id,
+                                                   @Param("limite") int limite);
+
+    interface LinhaHistorico {
+        Long getVendaId();
+        LocalDateTime getDataVenda();
+        BigDecimal getValorTotal();
+        BigDecimal getValorCashbackUsado();
+        Long getItemId();
+        Long getProdutoId();
+        String getNomePerfume();
+        String getMarca();
+        String getVolume();
+        Integer getQuantidade();
+        BigDecimal getPrecoUnitario();
+        LocalDate getDataPrevisaoTermino();
+        Long getRegistroId();
+        BigDecimal getValorCashback();
+        BigDecimal getValorCashbackUtilizado();
+        LocalDate getDataGeracaoCashback();
+        LocalDate getDataExpiracaoCashback();
+        Boolean getCashbackUtilizado();
+        Boolean getCashbackExpirado();
+    }
 }
@@ -1,17 +1,38 @@
 package com.bagatelle.fidelidade.service;
 
+import com.bagatelle.fidelidade.config.FusoHorarioJdbc;
+import com.bagatelle.fidelidade.dto.AlertaCashbackDTO;
+import com.bagatelle.fidelidade.event.CashbackAlteradoEvent;
 import com.bagatelle.fidelidade.model.Cliente;
+import com.bagatelle.fidelidade.model.EventoVenda;
 import com.bagatelle.fidelidade.model.RegistroCashback;
 import com.bagatelle.fidelidade.model.Venda;
+import com.bagatelle.fidelidade.repository.CashbackVendaRepository;
+import com.bagatelle.fidelidade.repository.ClienteRepository;
+import com.bagatelle.fidelidade.repository.EventoVendaRepository;
 import com.bagatelle.fidelidade.repository.RegistroCashbackRepository;
+import com.bagatelle.fidelidade.repository.RegistroCashbackRepository.AlocacaoCashback;
+import com.bagatelle.fidelidade.repository.VendaRepository;
+import com.bagatelle.fidelidade.service.VersaoDadosService.Area;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 @RequiredArgsConstructor
@@ -19,102 +40,263 @@ import java.util.List;
 public class CashbackService {
 
     private final RegistroCashbackRepository registroCashbackRepository;
+    private final EventoVendaRepository eventoVendaRepository;
+    private final CashbackVendaRepository cashbackVendaRepository;
+    private final VendaRepository vendaRepository;
     private final ClienteService clienteService;
+    private final VersaoDadosService versaoDadosService;
+    private final IndicadoresService indicadoresService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final FusoHorarioJdbc fusoHorarioJdbc;
 
     private static final BigDecimal PERCENTUAL_CASHBACK = new BigDecimal("0.05"); // 5%
-    private static final int DIAS_EXPIRACAO = 90;
+    static final int DIAS_EXPIRACAO = 90;
+    private static final int MAX_TENTATIVAS_DEBITO = 5;
+    private static final int DIAS_ALERTA_EXPIRACAO = 7;
+    private static final int TAMANHO_MAXIMO_ERRO = 1000; // eventos_venda.ultimo_erro
+
+    private static final String SQL_CONSUMIR_REGISTRO =
+            "UPDATE registros_cashback SET valor_utilizado = COALESCE(valor_utilizado, 0) + ?, utilizado = ? " +
+            "WHERE id = ? AND data_expiracao = ?";
+
+    private static final String SQL_INSERIR_EVENTO =
+            "INSERT INTO eventos_venda (venda_id, criado_em, tentativas) VALUES (?, ?, 0)";
+
+    private static final String SQL_INSERIR_CASHBACK_VENDA =
+            "INSERT INTO cashback_vendas (venda_id) VALUES (?)";
 
     /**
-     * Gera cashback de 5% do valor final da compra e adiciona ao saldo do cliente.
-     * Cria um registro de cashback com data de expiração de 90 dias.
+     * Registra a venda no outbox para geração do cashback. Grava só o evento, na transação
+     * da venda; o cashback é gerado em lote por gerarCashbackPendentes (GeradorCashbackJob).
      */
-    public RegistroCashback gerarCashback(Venda venda) {
-        if (venda == null || venda.getValorTotal() == null) {
-            throw new RuntimeException("Venda inválida para geração de cashback");
+    public void agendarGeracaoCashback(Venda venda) {
+        eventoVendaRepository.save(EventoVenda.builder()
+                .venda(venda)
+                .criadoEm(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Registra no outbox várias vendas de uma vez (sincronização em lote), num único lote JDBC.
+     */
+    public void agendarGeracaoCashback(List<Long> vendaIds) {
+        LocalDateTime agora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(SQL_INSERIR_EVENTO, vendaIds, vendaIds.size(), (ps, vendaId) -> {
+            ps.setLong(1, vendaId);
+            fusoHorarioJdbc.definir(ps, 2, agora);
+        });
+    }
+
+    /**
+     * Gera o cashback de 5% de um lote de vendas pendentes no outbox e credita o saldo dos clientes,
+     * uma atualização por cliente. Idempotente por venda: vendas que já têm registro de cashback
+     * são só marcadas como processadas. Retorna os eventos processados.
+     */
+    @Timed(value = "fidelidade.cashback.geracao", description = "Geração de cashback de um lote de vendas", histogram = true)
+    public List<EventoVenda> gerarCashbackPendentes(int tamanhoLote, int maxTentativas) {
+        return gerarCashback(eventoVendaRepository.buscarPendentes(maxTentativas, Limit.of(tamanhoLote)));
+    }
+
+    /**
+     * Gera o cashback de um único evento, na sua própria transação: usado pelo GeradorCashbackJob
+     * depois que um lote falhou, para que um evento com problema não impeça os outros.
+     */
+    public List<EventoVenda> gerarCashbackEvento(Long eventoId) {
+        return gerarCashback(eventoVendaRepository.buscarPendente(eventoId));
+    }
+
+    /**
+     * Conta mais uma tentativa do evento e guarda o erro; no limite de tentativas ele sai da fila.
+     */
+    public void registrarFalhaGeracao(Long eventoId, String erro, int maxTentativas) {
+        if (erro != null && erro.length() > TAMANHO_MAXIMO_ERRO) {
+            erro = erro.substring(0, TAMANHO_MAXIMO_ERRO);
         }
+        eventoVendaRepository.registrarFalha(eventoId, erro);
 
-        // Calcula 5% do valor final da compra (após desconto de cashback usado)
-        BigDecimal valorFinal = venda.calcularValorFinal();
-        BigDecimal valorCashback = valorFinal.multiply(PERCENTUAL_CASHBACK)
-                .setScale(2, RoundingMode.HALF_UP);
+        // Última tentativa: o evento sai da fila e a venda entra nos indicadores sem cashback
+        // (só uma vez: fora da fila, o evento não falha de novo até reabrirFalhas)
+        EventoVenda evento = eventoVendaRepository.findById(eventoId).orElse(null);
+        if (evento != null && evento.getProcessadoEm() == null && evento.getTentativas() == maxTentativas) {
+            indicadoresService.acumularVendas(List.of(evento.getVenda().getId()),
+                    evento.getVenda().getDataVenda().toLocalDate(), LocalDate.now(), BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Devolve para a fila os eventos que esgotaram as tentativas (ex: após corrigir a causa da falha).
+     * Retorna os dias das vendas reabertas: os indicadores desses dias contam as vendas desde a última
+     * tentativa e precisam ser reconstruídos para não contá-las de novo quando o evento for processado.
+     */
+    public Set<LocalDate> reabrirFalhas(int maxTentativas) {
+        List<Long> eventoIds = eventoVendaRepository.buscarIdsFalhas(maxTentativas);
+        if (eventoIds.isEmpty()) {
+            return Set.of();
+        }
+        eventoVendaRepository.reabrir(eventoIds);
+        return new TreeSet<>(eventoVendaRepository.buscarDiasVenda(eventoIds));
+    }
 
-        // Se o valor for muito pequeno, não gera cashback
-        if (valorCashback.compareTo(new BigDecimal("0.01")) < 0) {
-            return null;
+    private List<EventoVenda> gerarCashback(List<EventoVenda> eventos) {
+        if (eventos.isEmpty()) {
+            return eventos;
         }
 
-        // Cria o registro de cashback
-        RegistroCashback registro = RegistroCashback.builder()
-                .cliente(venda.getCliente())
-                .valor(valorCashback)
-                .dataGeracao(LocalDate.now())
-                .dataExpiracao(LocalDate.now().plusDays(DIAS_EXPIRACAO))
-                .utilizado(false)
-                .valorUtilizado(BigDecimal.ZERO)
-                .vendaOrigem(venda)
-                .build();
+        List<Long> vendaIds = eventos.stream()
+                .map(evento -> evento.getVenda().getId())
+                .toList();
+        LocalDate hoje = LocalDate.now();
+        List<Venda> vendas = vendaRepository.findAllById(vendaIds);
+
+        LocalDate vendaMaisAntiga = vendas.stream()
+                .map(venda -> venda.getDataVenda().toLocalDate())
+                .reduce(hoje, (a, b) -> a.isBefore(b) ? a : b);
+        Set<Long> jaGeradas = new HashSet<>(cashbackVendaRepository.buscarVendasComCashback(vendaIds));
 
-        registro = registroCashbackRepository.save(registro);
+        List<RegistroCashback> registros = new ArrayList<>();
+        Map<Long, BigDecimal> creditosPorCliente = new HashMap<>();
 
-        // Atualiza o saldo de cashback do cliente
-        clienteService.adicionarCashback(venda.getCliente().getId(), valorCashback);
+        for (Venda venda : vendas) {
+            if (jaGeradas.contains(venda.getId())) {
+                continue;
+            }
+
+            BigDecimal valorCashback = calcularCashback(venda);
+            // Se o valor for muito pequeno, não gera cashback
+            if (valorCashback.compareTo(new BigDecimal("0.01")) < 0) {
+                continue;
+            }
 
-        return registro;
+            registros.add(RegistroCashback.builder()
+                    .cliente(venda.getCliente())
+                    .valor(valorCashback)
+                    .dataGeracao(hoje)
+                    .dataExpiracao(hoje.plusDays(DIAS_EXPIRACAO))
+                    .utilizado(false)
+                    .valorUtilizado(BigDecimal.ZERO)
+                    .vendaOrigem(venda)
+                    .build());
+            creditosPorCliente.merge(venda.getCliente().getId(), valorCashback, BigDecimal::add);
+        }
+
+        // A chave primária de cashback_vendas barra um segundo registro para a venda (ex: evento
+        // reprocessado em paralelo): o lote falha e o GeradorCashbackJob refaz evento a evento
+        List<Long> vendasComRegistro = registros.stream()
+                .map(registro -> registro.getVendaOrigem().getId())
+                .toList();
+        jdbcTemplate.batchUpdate(SQL_INSERIR_CASHBACK_VENDA, vendasComRegistro, vendasComRegistro.size(),
+                (ps, vendaId) -> ps.setLong(1, vendaId));
+
+        // Registros inseridos em lote no flush
+        registroCashbackRepository.saveAll(registros);
+        creditosPorCliente.forEach(clienteService::adicionarCashback);
+
+        // Vendas do lote entram nos indicadores na mesma transação que as marca como processadas
+        BigDecimal cashbackGerado = registros.stream()
+                .map(RegistroCashback::getValor)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        indicadoresService.acumularVendas(vendaIds, vendaMaisAntiga, hoje, cashbackGerado);
+
+        LocalDateTime agora = LocalDateTime.now();
+        eventos.forEach(evento -> evento.setProcessadoEm(agora));
+        return eventos;
+    }
+
+    /**
+     * Cashback de 5% do valor final da compra (após desconto de cashback usado).
+     * O valor total da venda já é a soma dos itens, então os itens não precisam ser carregados.
+     */
+    public static BigDecimal calcularCashback(Venda venda) {
+        BigDecimal valorFinal = venda.getValorTotal().subtract(venda.getValorCashbackUsado());
+        return valorFinal.multiply(PERCENTUAL_CASHBACK)
+                .setScale(2, RoundingMode.HALF_UP);
     }
 
     /**
      * Utiliza cashback durante uma venda. Debita do saldo do cliente e marca
-     * os registros como parcial ou totalmente utilizados.
+     * os registros como parcial ou totalmente utilizados, mais antigos primeiro (FIFO).
+     * Retorna quanto foi tirado de cada registro, para auditoria do resgate.
      */
-    public void utilizarCashback(Cliente cliente, BigDecimal valorUtilizado) {
+    @Timed(value = "fidelidade.cashback.utilizacao", description = "Débito de cashback numa venda", histogram = true)
+    public List<AlocacaoCashback> utilizarCashback(Cliente cliente, BigDecimal valorUtilizado) {
         if (valorUtilizado == null || valorUtilizado.compareTo(BigDecimal.ZERO) <= 0) {
-            return; // Não há cashback a ser utilizado
+            return List.of(); // Não há cashback a ser utilizado
         }
 
-        // Valida se o cliente tem saldo suficiente
-        BigDecimal saldoDisponivel = calcularSaldoDisponivel(cliente);
-        if (valorUtilizado.compareTo(saldoDisponivel) > 0) {
-            throw new RuntimeException("Saldo de cashback insuficiente. Disponível: R$ " + saldoDisponivel);
-        }
+        // Debita o saldo do cliente antes de consumir os registros: o UPDATE mantém a linha
+        // do cliente bloqueada até o commit, serializando checkouts do mesmo cliente
+        debitarSaldo(cliente.getId(), valorUtilizado);
 
-        // Busca registros de cashback disponíveis (não utilizados e não expirados)
-        List<RegistroCashback> registros = registroCashbackRepository
-                .buscarPorClienteNaoUtilizado(cliente.getId(), LocalDate.now());
+        List<AlocacaoCashback> alocacoes = consumirFifo(cliente.getId(), valorUtilizado, LocalDate.now());
+        eventPublisher.publishEvent(new CashbackAlteradoEvent(cliente.getId()));
+        return alocacoes;
+    }
 
-        // Utiliza os registros mais antigos primeiro (FIFO)
-        BigDecimal valorRestante = valorUtilizado;
-        for (RegistroCashback registro : registros) {
-            if (valorRestante.compareTo(BigDecimal.ZERO) <= 0) {
-                break;
-            }
+    /**
+     * Consome o valor dos registros em aberto do cliente (não utilizados e não expirados),
+     * mais antigos primeiro. A alocação é calculada numa única consulta e gravada num único
+     * lote JDBC, qualquer que seja o número de registros. Falha se os registros não cobrirem o valor.
+     */
+    public List<AlocacaoCashback> consumirFifo(Long clienteId, BigDecimal valor, LocalDate hoje) {
+        List<AlocacaoCashback> alocacoes = registroCashbackRepository.alocarFifo(clienteId, valor, hoje);
+
+        BigDecimal valorAlocado = alocacoes.stream()
+                .map(AlocacaoCashback::getValorAlocado)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (valorAlocado.compareTo(valor) < 0) {
+            // Faltando saldo a alocação inclui todos os registros: a soma é o disponível
+            throw new RuntimeException("Saldo de cashback insuficiente. Disponível: R$ " + valorAlocado);
+        }
 
-            BigDecimal valorDisponivelRegistro = registro.getValorDisponivel();
-            BigDecimal valorAUtilizar = valorRestante.min(valorDisponivelRegistro);
+        jdbcTemplate.batchUpdate(SQL_CONSUMIR_REGISTRO, alocacoes, alocacoes.size(), (ps, alocacao) -> {
+            ps.setBigDecimal(1, alocacao.getValorAlocado());
+            ps.setBoolean(2, alocacao.getEsgotado());
+            ps.setLong(3, alocacao.getRegistroId());
+            ps.setObject(4, alocacao.getDataExpiracao());
+        });
+        return alocacoes;
+    }
 
-            registro.setValorUtilizado(registro.getValorUtilizado().add(valorAUtilizar));
+    /**
+     * Debita o saldo com controle otimista: lê saldo e versão, tenta o UPDATE condicional
+     * e, se outro checkout alterou o cliente nesse meio tempo, relê e tenta de novo.
+     */
+    private void debitarSaldo(Long clienteId, BigDecimal valor) {
+        for (int tentativa = 1; tentativa <= MAX_TENTATIVAS_DEBITO; tentativa++) {
+            ClienteRepository.SaldoCashbackVersao atual = clienteService.consultarSaldoCashback(clienteId);
 
-            // Se utilizou todo o valor do registro, marca como utilizado
-            if (registro.getValorUtilizado().compareTo(registro.getValor()) >= 0) {
-                registro.setUtilizado(true);
+            if (atual.getSaldoCashback().compareTo(valor) < 0) {
+                throw new RuntimeException("Saldo de cashback insuficiente. Disponível: R$ " + atual.getSaldoCashback());
             }
 
-            registroCashbackRepository.save(registro);
-            valorRestante = valorRestante.subtract(valorAUtilizar);
+            if (clienteService.subtrairCashback(clienteId, valor, atual.getVersao())) {
+                return;
+            }
         }
-
-        // Atualiza o saldo do cliente
-        clienteService.subtrairCashback(cliente.getId(), valorUtilizado);
+        throw new RuntimeException("Não foi possível debitar o cashback: saldo alterado por outra operação. Tente novamente.");
     }
 
     /**
-     * Calcula o saldo disponível de cashback do cliente.
-     * Considera apenas registros não expirados e não totalmente utilizados.
+     * Retorna o saldo disponível de cashback do cliente.
+     * O saldo gravado no cliente já desconta os registros expirados (ver expirarLote),
+     * então é uma leitura direta, sem somar o extrato.
      */
     public BigDecimal calcularSaldoDisponivel(Cliente cliente) {
-        return registroCashbackRepository.calcularSaldoDisponivel(
-                cliente.getId(),
-                LocalDate.now()
-        );
+        return clienteService.consultarSaldoCashback(cliente.getId()).getSaldoCashback();
+    }
+
+    /**
+     * Expira um lote de registros vencidos e debita o restante do saldo dos clientes.
+     * Cada chamada é uma transação; retorna false quando não há mais registros a expirar.
+     */
+    public boolean expirarLote(LocalDate hoje, int tamanhoLote) {
+        if (registroCashbackRepository.expirarLote(hoje, tamanhoLote) == 0) {
+            return false;
+        }
+        versaoDadosService.registrarAlteracao(Area.CASHBACK);
+        eventPublisher.publishEvent(new CashbackAlteradoEvent(null));
+        return true;
     }
 
     /**
@@ -127,9 +309,23 @@ public class CashbackService {
     /**
      * Busca registros de cashback que expirarão nos próximos 7 dias.
      */
-    public List<RegistroCashback> buscarCashbackExpirando() {
+    @Transactional(readOnly = true)
+    public List<AlertaCashbackDTO> buscarCashbackExpirando() {
+        LocalDate hoje = LocalDate.now();
+        return registroCashbackRepository.buscarCashbackExpirando(hoje, hoje.plusDays(DIAS_ALERTA_EXPIRACAO),
+                Limit.unlimited());
+    }
+
+    @Transactional(readOnly = true)
+    public long contarCashbackExpirando() {
+        LocalDate hoje = LocalDate.now();
+        return registroCashbackRepository.contarCashbackExpirando(hoje, hoje.plusDays(DIAS_ALERTA_EXPIRACAO));
+    }
+
+    @Transactional(readOnly = true)
+    public List<AlertaCashbackDTO> buscarPreviaCashbackExpirando(int limite) {
         LocalDate hoje = LocalDate.now();
-        LocalDate daquiA7Dias = hoje.plusDays(7);
-        return registroCashbackRepository.buscarCashbackExpirando(hoje, daquiA7Dias);
+        return registroCashbackRepository.buscarCashbackExpirando(hoje, hoje.plusDays(DIAS_ALERTA_EXPIRACAO),
+                Limit.of(limite));
     }
 }
@@ -2,7 +2,10 @@ package com.bagatelle.fidelidade.service;
 
 import com.bagatelle.fidelidade.model.Cliente;
 import com.bagatelle.fidelidade.repository.ClienteRepository;
+import com.bagatelle.fidelidade.service.VersaoDadosService.Area;
+import com.bagatelle.fidelidade.util.NormalizadorTexto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,7 +18,11 @@ import java.util.List;
 public class ClienteService {
 
     private final ClienteRepository clienteRepository;
+    private final VersaoDadosService versaoDadosService;
 
+    private static final int LIMITE_BUSCA = 15;
+
+    @Transactional(readOnly = true)
     public List<Cliente> listarTodos() {
         return clienteRepository.findAllOrdenados();
     }
@@ -30,12 +37,21 @@ public class ClienteService {
                 .orElseThrow(() -> new RuntimeException("Cliente não encontrado com CPF: " + cpf));
     }
 
+    /**
+     * Busca para o autocomplete: ignora acentos e maiúsculas e limita o número de resultados.
+     */
+    @Transactional(readOnly = true)
     public List<Cliente> buscarPorCpfOuNome(String termo) {
-        return clienteRepository.buscarPorCpfOuNome(termo);
+        String termoNormalizado = NormalizadorTexto.normalizar(termo);
+        if (termoNormalizado.isEmpty()) {
+            return List.of();
+        }
+        return clienteRepository.buscarPorCpfOuNome(termoNormalizado, Limit.of(LIMITE_BUSCA));
     }
 
     public Cliente salvar(Cliente cliente) {
         validarCliente(cliente);
+        versaoDadosService.registrarAlteracao(Area.CLIENTES);
         return clienteRepository.save(cliente);
     }
 
@@ -54,30 +70,41 @@ public class ClienteService {
         clienteExistente.setTelefone(clienteAtualizado.getTelefone());
         clienteExistente.setEmail(clienteAtualizado.getEmail());
 
+        versaoDadosService.registrarAlteracao(Area.CLIENTES);
         return clienteRepository.save(clienteExistente);
     }
 
     public void deletar(Long id) {
         Cliente cliente = buscarPorId(id);
         clienteRepository.delete(cliente);
+        versaoDadosService.registrarAlteracao(Area.CLIENTES);
     }
 
+    /**
+     * Credita cashback num único UPDATE (saldo = saldo + valor), sem ler o cliente antes.
+     */
     public void adicionarCashback(Long clienteId, BigDecimal valor) {
-        Cliente cliente = buscarPorId(clienteId);
-        cliente.setSaldoCashback(cliente.getSaldoCashback().add(valor));
-        clienteRepository.save(cliente);
+        if (clienteRepository.adicionarSaldoCashback(clienteId, valor) == 0) {
+            throw new RuntimeException("Cliente não encontrado com ID: " + clienteId);
+        }
+        versaoDadosService.registrarAlteracao(Area.CASHBACK);
     }
 
-    public void subtrairCashback(Long clienteId, BigDecimal valor) {
-        Cliente cliente = buscarPorId(clienteId);
-        BigDecimal novoSaldo = cliente.getSaldoCashback().subtract(valor);
+    public ClienteRepository.SaldoCashbackVersao consultarSaldoCashback(Long clienteId) {
+        return clienteRepository.buscarSaldoCashbackVersao(clienteId)
+                .orElseThrow(() -> new RuntimeException("Cliente não encontrado com ID: " + clienteId));
+    }
 
-        if (novoSaldo.compareTo(BigDecimal.ZERO) < 0) {
-            throw new RuntimeException("Saldo de cashback insuficiente");
+    /**
+     * Debita cashback num único UPDATE condicional, só se a versão ainda for a lida
+     * e o saldo for suficiente. Retorna false em caso de conflito ou saldo insuficiente.
+     */
+    public boolean subtrairCashback(Long clienteId, BigDecimal valor, Long versaoLida) {
+        if (clienteRepository.subtrairSaldoCashback(clienteId, valor, versaoLida) != 1) {
+            return false;
         }
-
-        cliente.setSaldoCashback(novoSaldo);
-        clienteRepository.save(cliente);
+        versaoDadosService.registrarAlteracao(Area.CASHBACK);
+        return true;
     }
 
     private void validarCliente(Cliente cliente) {
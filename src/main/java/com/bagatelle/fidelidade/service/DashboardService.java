@@ -1,26 +1,198 @@
 package com.bagatelle.fidelidade.service;
 
-import com.bagatelle.fidelidade.model.RegistroCashback;
-import com.bagatelle.fidelidade.model.Venda;
-import lombok.RequiredArgsConstructor;
+import com.bagatelle.fidelidade.config.RoteamentoLeitura;
+import com.bagatelle.fidelidade.dto.AlertaCashbackDTO;
+import com.bagatelle.fidelidade.dto.ResumoDashboardDTO;
+import com.bagatelle.fidelidade.dto.SugestaoRecompraDTO;
+import com.bagatelle.fidelidade.dto.VendaDTO;
+import com.bagatelle.fidelidade.event.CashbackAlteradoEvent;
+import com.bagatelle.fidelidade.event.ResumoDashboardAtualizadoEvent;
+import com.bagatelle.fidelidade.event.VendaRegistradaEvent;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
+/**
+ * Dados do dashboard. A página inicial lê um resumo mantido em memória (contadores e
+ * prévias), recalculado periodicamente e após cada venda; as seções do resumo são
+ * consultadas em paralelo. As páginas de detalhe continuam consultando o banco.
+ * Cada recálculo publica ResumoDashboardAtualizadoEvent, que alimenta o push das telas abertas
+ * (TransmissaoDashboardService).
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class DashboardService {
 
     private final CashbackService cashbackService;
     private final VendaService vendaService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Executor de tarefas do Spring (threads virtuais no perfil "virtual"); cada seção
+    // do resumo roda nele, na sua própria transação
+    private final Executor executorSecoes;
+
+    @Value("${fidelidade.dashboard.tamanho-previa:5}")
+    private int tamanhoPrevia;
+
+    // Atualizações do resumo, uma de cada vez; pedidos feitos durante uma atualização viram uma só
+    private final ExecutorService executorAtualizacao =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("dashboard-atualizacao-"));
+    private final AtomicBoolean atualizacaoPendente = new AtomicBoolean();
+    // Alguma atualização pendente foi pedida por uma escrita: lê do principal (ver RoteamentoLeitura)
+    private final AtomicBoolean aposEscrita = new AtomicBoolean();
+
+    // Lock em vez de synchronized: não prende a thread de plataforma quando chamado de uma thread virtual
+    private final ReentrantLock lockAtualizacao = new ReentrantLock();
+
+    private volatile ResumoDashboardDTO resumo;
+
+    // Registrado à mão: atualizar(boolean) só é chamado de dentro do bean, onde @Timed não intercepta
+    private final Timer tempoAtualizacao;
+
+    public DashboardService(CashbackService cashbackService,
+                            VendaService vendaService,
+                            ApplicationEventPublisher eventPublisher,
+                            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executorSecoes,
+                            MeterRegistry meterRegistry) {
+        this.cashbackService = cashbackService;
+        this.vendaService = vendaService;
+        this.eventPublisher = eventPublisher;
+        this.executorSecoes = executorSecoes;
+        this.tempoAtualizacao = Timer.builder("fidelidade.dashboard.atualizacao")
+                .description("Recálculo do resumo do dashboard")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Retorna o resumo atual do dashboard. Só consulta o banco se ainda não houver resumo.
+     */
+    public ResumoDashboardDTO getResumo() {
+        ResumoDashboardDTO atual = resumo;
+        if (atual == null) {
+            atual = atualizar();
+        }
+        return atual;
+    }
+
+    /**
+     * Recalcula o resumo consultando as seções em paralelo e o publica para as próximas leituras.
+     */
+    public ResumoDashboardDTO atualizar() {
+        return atualizar(false);
+    }
+
+    /**
+     * Com doPrincipal, as seções leem do banco principal mesmo havendo réplicas de leitura:
+     * o recálculo logo após uma venda não pode sair de uma réplica que ainda não recebeu a venda.
+     */
+    private ResumoDashboardDTO atualizar(boolean doPrincipal) {
+        lockAtualizacao.lock();
+        Timer.Sample amostra = Timer.start();
+        try {
+            CompletableFuture<Long> totalCashbacks =
+                    secao(cashbackService::contarCashbackExpirando, doPrincipal);
+            CompletableFuture<List<AlertaCashbackDTO>> previaCashbacks =
+                    secao(() -> cashbackService.buscarPreviaCashbackExpirando(tamanhoPrevia), doPrincipal);
+            CompletableFuture<Long> totalSugestoes =
+                    secao(vendaService::contarSugestoesRecompra, doPrincipal);
+            CompletableFuture<List<SugestaoRecompraDTO>> previaSugestoes =
+                    secao(() -> vendaService.buscarPreviaSugestoesRecompra(tamanhoPrevia), doPrincipal);
+
+            CompletableFuture.allOf(totalCashbacks, previaCashbacks, totalSugestoes, previaSugestoes).join();
+
+            ResumoDashboardDTO novo = ResumoDashboardDTO.builder()
+                    .totalCashbacksExpirando(totalCashbacks.join())
+                    .cashbacksExpirando(List.copyOf(previaCashbacks.join()))
+                    .totalSugestoesRecompra(totalSugestoes.join())
+                    .sugestoesRecompra(List.copyOf(previaSugestoes.join()))
+                    .atualizadoEm(LocalDateTime.now())
+                    .build();
+            ResumoDashboardDTO anterior = resumo;
+            resumo = novo;
+            eventPublisher.publishEvent(new ResumoDashboardAtualizadoEvent(anterior, novo));
+            return novo;
+        } finally {
+            amostra.stop(tempoAtualizacao);
+            lockAtualizacao.unlock();
+        }
+    }
+
+    // A fixação no principal é por thread, por isso é feita dentro da tarefa de cada seção
+    private <T> CompletableFuture<T> secao(Supplier<T> consulta, boolean doPrincipal) {
+        Supplier<T> tarefa = doPrincipal ? () -> RoteamentoLeitura.noPrimario(consulta) : consulta;
+        return CompletableFuture.supplyAsync(tarefa, executorSecoes);
+    }
+
+    /**
+     * Agenda uma atualização do resumo em segundo plano, sem bloquear quem chamou.
+     */
+    public void solicitarAtualizacao() {
+        if (!atualizacaoPendente.compareAndSet(false, true)) {
+            return;
+        }
+        executorAtualizacao.execute(() -> {
+            atualizacaoPendente.set(false);
+            try {
+                atualizar(aposEscrita.getAndSet(false));
+            } catch (RuntimeException e) {
+                // Mantém o resumo anterior; a próxima atualização tenta de novo
+                log.warn("Falha ao atualizar o resumo do dashboard", e);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${fidelidade.dashboard.atualizacao-ms:60000}")
+    public void atualizarPeriodicamente() {
+        solicitarAtualizacao();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoRegistrarVenda(VendaRegistradaEvent evento) {
+        aposEscrita.set(true);
+        solicitarAtualizacao();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoAlterarCashback(CashbackAlteradoEvent evento) {
+        aposEscrita.set(true);
+        solicitarAtualizacao();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executorAtualizacao.shutdownNow();
+    }
 
     /**
      * Retorna lista de cashbacks que expirarão nos próximos 7 dias.
      * Para cada registro, retorna: nome do cliente, valor do cashback e telefone.
      */
-    public List<RegistroCashback> buscarCashbackExpirando() {
+    @Timed(value = "fidelidade.dashboard.consulta", extraTags = {"secao", "cashback-expirando"}, histogram = true)
+    @Transactional(readOnly = true)
+    public List<AlertaCashbackDTO> buscarCashbackExpirando() {
         return cashbackService.buscarCashbackExpirando();
     }
 
@@ -28,7 +200,9 @@ public class DashboardService {
      * Retorna lista de vendas onde os produtos estão estimados para acabar agora.
      * Baseado no volume dos perfumes.
      */
-    public List<Venda> buscarSugestoesRecompra() {
+    @Timed(value = "fidelidade.dashboard.consulta", extraTags = {"secao", "sugestoes-recompra"}, histogram = true)
+    @Transactional(readOnly = true)
+    public List<VendaDTO> buscarSugestoesRecompra() {
         // Alterado de buscarVendasDe5MesesAtras() para a nova lógica
         return vendaService.buscarSugestoesRecompraDinamica();
     }
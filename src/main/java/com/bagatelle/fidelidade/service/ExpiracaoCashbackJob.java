@@ -0,0 +1,36 @@
+package com.bagatelle.fidelidade.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Varredura periódica que expira os registros de cashback vencidos.
+ * Processa em lotes, cada um na sua própria transação, até não sobrar nenhum.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExpiracaoCashbackJob {
+
+    private final CashbackService cashbackService;
+
+    @Value("${fidelidade.cashback.expiracao.tamanho-lote:1000}")
+    private int tamanhoLote;
+
+    @Scheduled(cron = "${fidelidade.cashback.expiracao.cron:0 5 * * * *}")
+    public void expirarCashbackVencido() {
+        LocalDate hoje = LocalDate.now();
+        int lotes = 0;
+        while (cashbackService.expirarLote(hoje, tamanhoLote)) {
+            lotes++;
+        }
+        if (lotes > 0) {
+            log.info("Expiração de cashback: {} lote(s) processado(s)", lotes);
+        }
+    }
+}
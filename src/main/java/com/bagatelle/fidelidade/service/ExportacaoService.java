@@ -0,0 +1,117 @@
+package com.bagatelle.fidelidade.service;
+
+import com.bagatelle.fidelidade.config.FusoHorarioJdbc;
+import com.bagatelle.fidelidade.util.EscritorCsv;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+
+/**
+ * Exportação das vendas de um período para a contabilidade, em CSV.
+ * Lê com cursor (fetch size, só para frente) e escreve cada linha direto no destino:
+ * a memória usada é a mesma para um mês ou para um ano de vendas.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportacaoService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FusoHorarioJdbc fusoHorarioJdbc;
+
+    // Linhas trazidas do banco por vez; o driver do PostgreSQL só usa cursor dentro de uma transação
+    private static final int TAMANHO_BLOCO = 1000;
+
+    public enum TipoExportacao {
+
+        VENDAS(new String[]{"venda_id", "data_venda", "cliente_id", "cliente_nome", "cliente_cpf",
+                "valor_total", "valor_cashback_usado", "valor_final"},
+                "SELECT v.id, v.data_venda, c.id, c.nome_completo, c.cpf, " +
+                "v.valor_total, v.valor_cashback_usado, v.valor_total - v.valor_cashback_usado " +
+                "FROM vendas v JOIN clientes c ON c.id = v.cliente_id " +
+                "WHERE v.data_venda >= ? AND v.data_venda < ? " +
+                "ORDER BY v.data_venda, v.id"),
+
+        ITENS(new String[]{"venda_id", "data_venda", "cliente_id", "item_id", "produto_id", "produto_nome",
+                "marca", "volume", "quantidade", "preco_unitario", "subtotal"},
+                // Período filtrado nos itens (que têm a data da venda); a venda é localizada
+                // pela chave completa (id, data_venda), só na partição do item
+                "SELECT v.id, v.data_venda, v.cliente_id, i.id, p.id, p.nome_perfume, " +
+                "p.marca, p.volume, i.quantidade, i.preco_unitario, i.quantidade * i.preco_unitario " +
+                "FROM itens_venda i " +
+                "JOIN vendas v ON v.id = i.venda_id AND v.data_venda = i.data_venda " +
+                "JOIN produtos p ON p.id = i.produto_id " +
+                "WHERE i.data_venda >= ? AND i.data_venda < ? " +
+                "ORDER BY v.data_venda, v.id, i.id"),
+
+        // Registros de cashback gerados no período (data_geracao). O registro expira depois de
+        // gerado, então o início do período também limita data_expiracao (coluna de partição)
+        CASHBACK(new String[]{"registro_id", "cliente_id", "cliente_nome", "venda_id", "valor", "valor_utilizado",
+                "data_geracao", "data_expiracao", "utilizado", "expirado"},
+                "SELECT r.id, c.id, c.nome_completo, r.venda_id, r.valor, r.valor_utilizado, " +
+                "r.data_geracao, r.data_expiracao, r.utilizado, r.expirado " +
+                "FROM registros_cashback r JOIN clientes c ON c.id = r.cliente_id " +
+                "WHERE r.data_geracao >= ? AND r.data_geracao < ? AND r.data_expiracao >= ? " +
+                "ORDER BY r.data_geracao, r.id");
+
+        private final String[] cabecalho;
+        private final String sql;
+
+        TipoExportacao(String[] cabecalho, String sql) {
+            this.cabecalho = cabecalho;
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Escreve no destino o CSV do período [inicio, fim] (datas inclusivas) e retorna o número de linhas.
+     * O destino não é fechado.
+     */
+    @Transactional(readOnly = true)
+    public long exportar(TipoExportacao tipo, LocalDate inicio, LocalDate fim, Writer destino) {
+        if (inicio == null || fim == null || fim.isBefore(inicio)) {
+            throw new IllegalArgumentException("Período inválido para exportação");
+        }
+
+        EscritorCsv csv = new EscritorCsv(destino, fusoHorarioJdbc.calendario());
+        long[] linhas = {0};
+        try {
+            csv.escreverLinha(tipo.cabecalho);
+
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(tipo.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(TAMANHO_BLOCO);
+                if (tipo == TipoExportacao.CASHBACK) {
+                    ps.setObject(1, inicio);
+                    ps.setObject(2, fim.plusDays(1));
+                    ps.setObject(3, inicio);
+                } else {
+                    // data_venda é gravada pelo Hibernate em hibernate.jdbc.time_zone, não no fuso da JVM
+                    fusoHorarioJdbc.definir(ps, 1, inicio.atStartOfDay());
+                    fusoHorarioJdbc.definir(ps, 2, fim.plusDays(1).atStartOfDay());
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    csv.escreverRegistro(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                linhas[0]++;
+            });
+
+            csv.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return linhas[0];
+    }
+}
@@ -0,0 +1,142 @@
+package com.bagatelle.fidelidade.service;
+
+import com.bagatelle.fidelidade.dto.ResultadoReaberturaCashbackDTO;
+import com.bagatelle.fidelidade.model.EventoVenda;
+import com.bagatelle.fidelidade.repository.EventoVendaRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consome o outbox de vendas (eventos_venda) e gera o cashback em lotes, cada lote na sua
+ * própria transação, até esvaziar a fila. Se um lote falha, os eventos dele são processados um a um:
+ * o que falhar tem a tentativa contada e, no limite (max-tentativas), sai da fila, sem travar os outros.
+ * Métricas para acompanhar o atraso do crédito: fidelidade.cashback.atraso (da venda ao crédito),
+ * fidelidade.cashback.pendentes, fidelidade.cashback.pendente.idade (segundos do evento pendente
+ * mais antigo) e fidelidade.cashback.falhas (eventos que esgotaram as tentativas).
+ */
+@Slf4j
+@Component
+public class GeradorCashbackJob {
+
+    private final CashbackService cashbackService;
+    private final IndicadoresService indicadoresService;
+    private final EventoVendaRepository eventoVendaRepository;
+    private final Timer atraso;
+
+    private final AtomicLong pendentes = new AtomicLong();
+    private final AtomicLong idadePendenteMaisAntigo = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+
+    @Value("${fidelidade.cashback.geracao.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    @Value("${fidelidade.cashback.geracao.max-tentativas:5}")
+    private int maxTentativas;
+
+    public GeradorCashbackJob(CashbackService cashbackService,
+                              IndicadoresService indicadoresService,
+                              EventoVendaRepository eventoVendaRepository,
+                              MeterRegistry meterRegistry) {
+        this.cashbackService = cashbackService;
+        this.indicadoresService = indicadoresService;
+        this.eventoVendaRepository = eventoVendaRepository;
+        this.atraso = Timer.builder("fidelidade.cashback.atraso")
+                .description("Tempo entre a venda e o crédito do cashback")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("fidelidade.cashback.pendentes", pendentes, AtomicLong::get)
+                .description("Vendas aguardando geração de cashback")
+                .register(meterRegistry);
+        Gauge.builder("fidelidade.cashback.pendente.idade", idadePendenteMaisAntigo, AtomicLong::get)
+                .description("Idade do evento pendente mais antigo")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("fidelidade.cashback.falhas", falhas, AtomicLong::get)
+                .description("Vendas sem cashback por falha após todas as tentativas")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${fidelidade.cashback.geracao.intervalo-ms:1000}")
+    public void gerarCashbackPendente() {
+        try {
+            int lidos;
+            do {
+                List<EventoVenda> processados;
+                try {
+                    processados = cashbackService.gerarCashbackPendentes(tamanhoLote, maxTentativas);
+                    lidos = processados.size();
+                } catch (RuntimeException e) {
+                    // O lote foi desfeito: os mesmos eventos, um por transação
+                    log.warn("Falha ao gerar cashback de um lote; processando as vendas uma a uma", e);
+                    List<Long> eventoIds = eventoVendaRepository.buscarIdsPendentes(maxTentativas, Limit.of(tamanhoLote));
+                    lidos = eventoIds.size();
+                    processados = gerarUmPorVez(eventoIds);
+                }
+                for (EventoVenda evento : processados) {
+                    atraso.record(Duration.between(evento.getCriadoEm(), evento.getProcessadoEm()));
+                }
+            } while (lidos == tamanhoLote);
+        } catch (RuntimeException e) {
+            // Os eventos continuam pendentes; a próxima execução tenta de novo
+            log.error("Falha ao gerar cashback das vendas pendentes", e);
+        } finally {
+            atualizarPendentes();
+        }
+    }
+
+    /**
+     * Devolve para a fila as vendas que esgotaram as tentativas e reconstrói os indicadores dos dias delas,
+     * que já as contavam: ficam de fora até o evento ser processado. Dias com falha na reconstrução
+     * podem ser pedidos de novo em /indicadores/api/reconstruir.
+     */
+    public ResultadoReaberturaCashbackDTO reabrirFalhas() {
+        Set<LocalDate> dias = cashbackService.reabrirFalhas(maxTentativas);
+        ResultadoReaberturaCashbackDTO resultado = new ResultadoReaberturaCashbackDTO();
+        resultado.setDias(new ArrayList<>(dias));
+        for (LocalDate dia : dias) {
+            resultado.getDiasComFalha().addAll(indicadoresService.reconstruir(dia, dia).getDiasComFalha());
+        }
+        log.info("Eventos com falha de cashback reabertos; indicadores de {} dia(s) reconstruídos", dias.size());
+        atualizarPendentes();
+        return resultado;
+    }
+
+    private List<EventoVenda> gerarUmPorVez(List<Long> eventoIds) {
+        List<EventoVenda> processados = new ArrayList<>();
+        for (Long eventoId : eventoIds) {
+            try {
+                processados.addAll(cashbackService.gerarCashbackEvento(eventoId));
+            } catch (RuntimeException e) {
+                log.error("Falha ao gerar cashback do evento {}", eventoId, e);
+                cashbackService.registrarFalhaGeracao(eventoId, e.toString(), maxTentativas);
+            }
+        }
+        return processados;
+    }
+
+    private void atualizarPendentes() {
+        try {
+            pendentes.set(eventoVendaRepository.contarPendentes(maxTentativas));
+            falhas.set(eventoVendaRepository.contarFalhas(maxTentativas));
+            LocalDateTime maisAntigo = eventoVendaRepository.buscarCriacaoPendenteMaisAntiga(maxTentativas);
+            idadePendenteMaisAntigo.set(maisAntigo == null ? 0
+                    : Duration.between(maisAntigo, LocalDateTime.now()).toSeconds());
+        } catch (RuntimeException e) {
+            log.warn("Falha ao consultar vendas pendentes de cashback", e);
+        }
+    }
+}
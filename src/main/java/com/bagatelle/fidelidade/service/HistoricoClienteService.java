@@ -0,0 +1,132 @@
+package com.bagatelle.fidelidade.service;
+
+import com.bagatelle.fidelidade.dto.HistoricoClienteDTO;
+import com.bagatelle.fidelidade.dto.HistoricoClienteDTO.CashbackHistorico;
+import com.bagatelle.fidelidade.dto.HistoricoClienteDTO.ItemHistorico;
+import com.bagatelle.fidelidade.dto.HistoricoClienteDTO.VendaHistorico;
+import com.bagatelle.fidelidade.repository.ClienteRepository;
+import com.bagatelle.fidelidade.repository.ClienteRepository.ResumoHistorico;
+import com.bagatelle.fidelidade.repository.VendaRepository;
+import com.bagatelle.fidelidade.repository.VendaRepository.LinhaHistorico;
+import com.bagatelle.fidelidade.service.VersaoDadosService.Area;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Histórico de compras e cashback de um cliente, lido por projeções (sem carregar entidades).
+ * O cabeçalho sai de uma consulta leve que também define o ETag; as vendas da página,
+ * com itens, produtos e cashback, saem de uma segunda consulta.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class HistoricoClienteService {
+
+    private final ClienteRepository clienteRepository;
+    private final VendaRepository vendaRepository;
+    private final VersaoDadosService versaoDadosService;
+
+    public static final int TAMANHO_PAGINA_PADRAO = 10;
+    private static final int TAMANHO_PAGINA_MAXIMO = 50;
+
+    public ResumoHistorico buscarResumo(Long clienteId) {
+        return clienteRepository.buscarResumoHistorico(clienteId)
+                .orElseThrow(() -> new RuntimeException("Cliente não encontrado com ID: " + clienteId));
+    }
+
+    /**
+     * ETag do histórico: muda com nova venda, novo cashback ou qualquer movimentação de saldo
+     * (que incrementa a versão do cliente), com a edição dos dados do cliente e com a alteração do
+     * catálogo, que muda nome, marca e volume dos itens e as previsões de recompra. A versão do catálogo
+     * é local à instância (VersaoDadosService); a data da última alteração, que começa na inicialização,
+     * evita repetir um ETag depois de reiniciar.
+     */
+    public String calcularEtag(ResumoHistorico resumo) {
+        int dados = Objects.hash(resumo.getNomeCompleto(), resumo.getCpf(), resumo.getTelefone(), resumo.getEmail());
+        long catalogo = versaoDadosService.alteradoEm(Area.CATALOGO).toEpochMilli();
+        return "W/\"" + resumo.getId() + "-" + resumo.getVersao() + "-" + resumo.getUltimaVendaId()
+                + "-" + resumo.getUltimoRegistroId() + "-" + Integer.toHexString(dados)
+                + "-" + versaoDadosService.versao(Area.CATALOGO) + "." + Long.toString(catalogo, 36) + "\"";
+    }
+
+    /**
+     * Monta uma página do histórico, vendas mais recentes primeiro.
+     * Sem cursor, retorna a primeira página.
+     */
+    public HistoricoClienteDTO buscarHistorico(ResumoHistorico resumo, LocalDateTime cursorDataVenda,
+                                               Long cursorId, int tamanho) {
+        int tamanhoPagina = Math.max(1, Math.min(tamanho, TAMANHO_PAGINA_MAXIMO));
+
+        // Busca uma venda a mais só para saber se existe próxima página
+        List<LinhaHistorico> linhas = (cursorDataVenda == null || cursorId == null)
+                ? vendaRepository.buscarHistoricoPrimeiraPagina(resumo.getId(), tamanhoPagina + 1)
+                : vendaRepository.buscarHistoricoPaginaApos(resumo.getId(), cursorDataVenda, cursorId, tamanhoPagina + 1);
+
+        List<VendaHistorico> vendas = agruparPorVenda(linhas);
+        boolean temProxima = vendas.size() > tamanhoPagina;
+        if (temProxima) {
+            vendas = vendas.subList(0, tamanhoPagina);
+        }
+
+        HistoricoClienteDTO.HistoricoClienteDTOBuilder historico = HistoricoClienteDTO.builder()
+                .clienteId(resumo.getId())
+                .nomeCompleto(resumo.getNomeCompleto())
+                .cpf(resumo.getCpf())
+                .telefone(resumo.getTelefone())
+                .email(resumo.getEmail())
+                .saldoCashback(resumo.getSaldoCashback())
+                .vendas(vendas)
+                .temProxima(temProxima);
+
+        if (!vendas.isEmpty()) {
+            VendaHistorico ultima = vendas.get(vendas.size() - 1);
+            historico.cursorDataVenda(ultima.getDataVenda()).cursorId(ultima.getId());
+        }
+        return historico.build();
+    }
+
+    // As linhas vêm ordenadas por venda, uma por item
+    private List<VendaHistorico> agruparPorVenda(List<LinhaHistorico> linhas) {
+        List<VendaHistorico> vendas = new ArrayList<>();
+        VendaHistorico atual = null;
+
+        for (LinhaHistorico linha : linhas) {
+            if (atual == null || !atual.getId().equals(linha.getVendaId())) {
+                atual = new VendaHistorico();
+                atual.setId(linha.getVendaId());
+                atual.setDataVenda(linha.getDataVenda());
+                atual.setValorTotal(linha.getValorTotal());
+                atual.setValorCashbackUsado(linha.getValorCashbackUsado());
+                if (linha.getRegistroId() != null) {
+                    atual.setCashback(new CashbackHistorico(
+                            linha.getRegistroId(),
+                            linha.getValorCashback(),
+                            linha.getValorCashbackUtilizado(),
+                            linha.getDataGeracaoCashback(),
+                            linha.getDataExpiracaoCashback(),
+                            linha.getCashbackUtilizado(),
+                            linha.getCashbackExpirado()));
+                }
+                vendas.add(atual);
+            }
+
+            if (linha.getItemId() != null) {
+                atual.getItens().add(new ItemHistorico(
+                        linha.getProdutoId(),
+                        linha.getNomePerfume(),
+                        linha.getMarca(),
+                        linha.getVolume(),
+                        linha.getQuantidade(),
+                        linha.getPrecoUnitario(),
+                        linha.getDataPrevisaoTermino()));
+            }
+        }
+        return vendas;
+    }
+}
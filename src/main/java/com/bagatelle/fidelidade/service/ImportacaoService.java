@@ -0,0 +1,270 @@
+package com.bagatelle.fidelidade.service;
+
+import com.bagatelle.fidelidade.dto.ResultadoImportacaoDTO;
+import com.bagatelle.fidelidade.model.Cliente;
+import com.bagatelle.fidelidade.model.Produto;
+import com.bagatelle.fidelidade.repository.ClienteRepository;
+import com.bagatelle.fidelidade.service.VersaoDadosService.Area;
+import com.bagatelle.fidelidade.util.LeitorCsv;
+import com.bagatelle.fidelidade.util.NormalizadorTexto;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em massa de clientes e produtos a partir de CSV (cadastro de uma nova filial).
+ * O arquivo é lido em fluxo e gravado em lotes via JDBC, cada lote na sua transação:
+ * a memória usada não depende do tamanho do arquivo. Linhas inválidas ou duplicadas são
+ * rejeitadas individualmente e listadas no resultado; as demais são importadas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportacaoService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ClienteRepository clienteRepository;
+    private final ModeloDuracaoService modeloDuracaoService;
+    private final VersaoDadosService versaoDadosService;
+
+    @Value("${fidelidade.importacao.tamanho-lote:1000}")
+    private int tamanhoLote;
+
+    // ON CONFLICT cobre CPFs repetidos dentro do mesmo lote e cadastros concorrentes
+    private static final String SQL_INSERIR_CLIENTE =
+            "INSERT INTO clientes (nome_completo, cpf, telefone, email, saldo_cashback, versao, texto_busca) " +
+            "VALUES (?, ?, ?, ?, 0, 0, ?) " +
+            "ON CONFLICT (cpf) DO NOTHING";
+
+    private static final String SQL_INSERIR_PRODUTO =
+            "INSERT INTO produtos (nome_perfume, marca, volume, preco_venda, texto_busca, " +
+            "volume_ml, duracao_dias, duracao_estimada_dias) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Importa clientes. Colunas: nome (ou nome_completo), cpf, telefone, email.
+     * CPF e telefone podem vir formatados; só os dígitos são gravados.
+     */
+    public ResultadoImportacaoDTO importarClientes(Reader arquivo) {
+        ResultadoImportacaoDTO resultado = new ResultadoImportacaoDTO();
+
+        try (LeitorCsv csv = new LeitorCsv(arquivo)) {
+            exigirColuna(csv, "nome_completo", "nome");
+            exigirColuna(csv, "cpf");
+            exigirColuna(csv, "telefone", "celular");
+            exigirColuna(csv, "email", "e-mail");
+
+            List<Linha<Cliente>> lote = new ArrayList<>(tamanhoLote);
+            while (csv.proximo()) {
+                resultado.setLinhasLidas(resultado.getLinhasLidas() + 1);
+
+                Cliente cliente = Cliente.builder()
+                        .nomeCompleto(csv.valor("nome_completo", "nome"))
+                        .cpf(apenasDigitos(csv.valor("cpf")))
+                        .telefone(apenasDigitos(csv.valor("telefone", "celular")))
+                        .email(csv.valor("email", "e-mail"))
+                        .build();
+
+                String erro = validar(cliente);
+                if (erro != null) {
+                    resultado.adicionarErro(csv.getLinha(), erro);
+                    continue;
+                }
+
+                lote.add(new Linha<>(csv.getLinha(), cliente));
+                if (lote.size() >= tamanhoLote) {
+                    gravarClientes(lote, resultado);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                gravarClientes(lote, resultado);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler o arquivo CSV: " + e.getMessage(), e);
+        } finally {
+            // Cada lote é gravado na própria transação: o que já foi gravado vale mesmo com erro no meio
+            versaoDadosService.registrarAlteracao(Area.CLIENTES);
+        }
+
+        log.info("Importação de clientes: {} linha(s), {} importado(s), {} rejeitada(s)",
+                resultado.getLinhasLidas(), resultado.getImportados(), resultado.getTotalErros());
+        return resultado;
+    }
+
+    /**
+     * Importa produtos. Colunas: nome (ou nome_perfume), marca, volume, preco e, opcionalmente,
+     * duracao_dias. O preço aceita vírgula decimal ("129,90" ou "1.299,90").
+     */
+    @CacheEvict(cacheNames = {ProdutoService.CACHE_PRODUTOS, ProdutoService.CACHE_CATALOGO,
+            ProdutoService.CACHE_POR_MARCA}, allEntries = true)
+    public ResultadoImportacaoDTO importarProdutos(Reader arquivo) {
+        ResultadoImportacaoDTO resultado = new ResultadoImportacaoDTO();
+
+        try (LeitorCsv csv = new LeitorCsv(arquivo)) {
+            exigirColuna(csv, "nome_perfume", "nome");
+            exigirColuna(csv, "marca");
+            exigirColuna(csv, "volume");
+            exigirColuna(csv, "preco_venda", "preco");
+
+            List<Linha<Produto>> lote = new ArrayList<>(tamanhoLote);
+            while (csv.proximo()) {
+                resultado.setLinhasLidas(resultado.getLinhasLidas() + 1);
+
+                Produto produto;
+                try {
+                    produto = Produto.builder()
+                            .nomePerfume(csv.valor("nome_perfume", "nome"))
+                            .marca(csv.valor("marca"))
+                            .precoVenda(lerPreco(csv.valor("preco_venda", "preco")))
+                            .duracaoDias(lerInteiro(csv.valor("duracao_dias", "duracao")))
+                            .build();
+                    produto.setVolume(csv.valor("volume"));
+                } catch (NumberFormatException e) {
+                    resultado.adicionarErro(csv.getLinha(), "Número inválido: " + e.getMessage());
+                    continue;
+                }
+
+                String erro = validar(produto);
+                if (erro != null) {
+                    resultado.adicionarErro(csv.getLinha(), erro);
+                    continue;
+                }
+
+                produto.setDuracaoEstimadaDias(modeloDuracaoService.calcularDuracaoDias(produto));
+                lote.add(new Linha<>(csv.getLinha(), produto));
+                if (lote.size() >= tamanhoLote) {
+                    gravarProdutos(lote, resultado);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                gravarProdutos(lote, resultado);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler o arquivo CSV: " + e.getMessage(), e);
+        } finally {
+            versaoDadosService.registrarAlteracao(Area.CATALOGO);
+        }
+
+        log.info("Importação de produtos: {} linha(s), {} importado(s), {} rejeitada(s)",
+                resultado.getLinhasLidas(), resultado.getImportados(), resultado.getTotalErros());
+        return resultado;
+    }
+
+    private void gravarClientes(List<Linha<Cliente>> lote, ResultadoImportacaoDTO resultado) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // CPFs já cadastrados: uma consulta por lote em vez de uma por linha
+            Set<String> existentes = new HashSet<>(clienteRepository.buscarCpfsExistentes(
+                    lote.stream().map(linha -> linha.registro().getCpf()).collect(Collectors.toSet())));
+
+            List<Linha<Cliente>> novos = new ArrayList<>(lote.size());
+            for (Linha<Cliente> linha : lote) {
+                if (existentes.contains(linha.registro().getCpf())) {
+                    resultado.adicionarErro(linha.numero(), "CPF já cadastrado: " + linha.registro().getCpf());
+                } else {
+                    novos.add(linha);
+                }
+            }
+
+            int[][] contagens = jdbcTemplate.batchUpdate(SQL_INSERIR_CLIENTE, novos, novos.size(), (ps, linha) -> {
+                Cliente cliente = linha.registro();
+                ps.setString(1, cliente.getNomeCompleto());
+                ps.setString(2, cliente.getCpf());
+                ps.setString(3, cliente.getTelefone());
+                ps.setString(4, cliente.getEmail());
+                ps.setString(5, NormalizadorTexto.textoBusca(cliente.getNomeCompleto(), cliente.getCpf()));
+            });
+
+            int[] inseridos = contagens.length > 0 ? contagens[0] : new int[0];
+            for (int i = 0; i < inseridos.length; i++) {
+                if (inseridos[i] == 0) {
+                    Linha<Cliente> linha = novos.get(i);
+                    resultado.adicionarErro(linha.numero(), "CPF repetido no arquivo: " + linha.registro().getCpf());
+                } else {
+                    resultado.setImportados(resultado.getImportados() + 1);
+                }
+            }
+        });
+    }
+
+    private void gravarProdutos(List<Linha<Produto>> lote, ResultadoImportacaoDTO resultado) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(SQL_INSERIR_PRODUTO, lote, lote.size(), (ps, linha) -> {
+                Produto produto = linha.registro();
+                ps.setString(1, produto.getNomePerfume());
+                ps.setString(2, produto.getMarca());
+                ps.setString(3, produto.getVolume());
+                ps.setBigDecimal(4, produto.getPrecoVenda());
+                ps.setString(5, NormalizadorTexto.textoBusca(produto.getNomePerfume(), produto.getMarca()));
+                ps.setInt(6, produto.getVolumeMl());
+                if (produto.getDuracaoDias() != null) {
+                    ps.setInt(7, produto.getDuracaoDias());
+                } else {
+                    ps.setNull(7, Types.INTEGER);
+                }
+                ps.setInt(8, produto.getDuracaoEstimadaDias());
+            });
+            resultado.setImportados(resultado.getImportados() + lote.size());
+        });
+    }
+
+    // Mesmas restrições do cadastro pela tela (anotações da entidade); junta as mensagens
+    private String validar(Object registro) {
+        Set<ConstraintViolation<Object>> violacoes = validator.validate(registro);
+        if (violacoes.isEmpty()) {
+            return null;
+        }
+        return violacoes.stream()
+                .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining("; "));
+    }
+
+    private static void exigirColuna(LeitorCsv csv, String... nomesAceitos) {
+        if (!csv.temColuna(nomesAceitos)) {
+            throw new IllegalArgumentException("Coluna obrigatória ausente no cabeçalho: " + String.join(" ou ", nomesAceitos));
+        }
+    }
+
+    private static String apenasDigitos(String valor) {
+        return valor == null ? null : valor.replaceAll("\\D", "");
+    }
+
+    private static BigDecimal lerPreco(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String numero = valor.replace("R$", "").trim();
+        if (numero.contains(",")) {
+            numero = numero.replace(".", "").replace(',', '.');
+        }
+        return new BigDecimal(numero);
+    }
+
+    private static Integer lerInteiro(String valor) {
+        return valor == null ? null : Integer.valueOf(valor);
+    }
+
+    private record Linha<T>(long numero, T registro) {
+    }
+}
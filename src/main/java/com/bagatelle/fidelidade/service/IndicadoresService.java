@@ -0,0 +1,291 @@
+package com.bagatelle.fidelidade.service;
+
+import com.bagatelle.fidelidade.dto.IndicadoresVendasDTO;
+import com.bagatelle.fidelidade.dto.IndicadoresVendasDTO.ItemRanking;
+import com.bagatelle.fidelidade.dto.IndicadoresVendasDTO.Periodo;
+import com.bagatelle.fidelidade.dto.ResultadoReconstrucaoIndicadoresDTO;
+import com.bagatelle.fidelidade.model.IndicadorDiario;
+import com.bagatelle.fidelidade.repository.IndicadorDiarioRepository;
+import com.bagatelle.fidelidade.repository.IndicadorProdutoDiarioRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Indicadores de vendas pré-agregados por dia (indicadores_diarios e indicadores_produtos_diarios):
+ * faturamento, ticket médio, cashback gerado/usado/expirado e ranking de produtos e marcas.
+ * As consultas somam os dias do período (semana e mês são agrupados aqui), sem ler vendas e itens.
+ *
+ * Atualização incremental: as vendas entram quando o GeradorCashbackJob processa o evento do outbox
+ * (acumularVendas, na transação do lote) e o cashback expirado na própria expirarLote. Uma venda conta
+ * uma única vez, junto com a marcação do evento como processado, ou quando o evento esgota as tentativas
+ * (CashbackService.registrarFalhaGeracao): a venda aconteceu mesmo sem cashback.
+ * A reconstrução recalcula os dias a partir das tabelas de origem, vários dias em paralelo.
+ */
+@Slf4j
+@Service
+public class IndicadoresService {
+
+    public enum Agrupamento {
+        DIA, SEMANA, MES
+    }
+
+    // Vendas com evento ainda na fila do outbox ficam de fora: entram pelo acumularVendas quando processadas
+    // ou quando esgotam as tentativas. O parâmetro é o max-tentativas (a carga da V7 é anterior às tentativas
+    // da V8, quando todo evento pendente estava na fila)
+    private static final String SEM_EVENTO_PENDENTE =
+            "NOT EXISTS (SELECT 1 FROM eventos_venda e WHERE e.venda_id = %s AND e.processado_em IS NULL " +
+            "AND e.tentativas < ?)";
+
+    private static final String SQL_APAGAR_DIA = "DELETE FROM indicadores_diarios WHERE dia = ?";
+
+    private static final String SQL_APAGAR_PRODUTOS_DIA = "DELETE FROM indicadores_produtos_diarios WHERE dia = ?";
+
+    // Cashback gerado no dia expira até DIAS_EXPIRACAO depois: o intervalo restringe as partições lidas.
+    // Registro expirado continua com utilizado = false (usa o índice parcial de expiração).
+    // Dia sem movimento não ganha linha, como no acumularVendas
+    private static final String SQL_RECONSTRUIR_DIA =
+            "INSERT INTO indicadores_diarios (dia, quantidade_vendas, faturamento, cashback_usado, " +
+            "                                 cashback_gerado, cashback_expirado) " +
+            "SELECT * FROM ( " +
+            "    SELECT CAST(? AS DATE) AS dia, COUNT(*) AS quantidade_vendas, " +
+            "           COALESCE(SUM(v.valor_total), 0) AS faturamento, " +
+            "           COALESCE(SUM(v.valor_cashback_usado), 0) AS cashback_usado, " +
+            "           (SELECT COALESCE(SUM(r.valor), 0) FROM registros_cashback r " +
+            "            WHERE r.data_geracao = ? AND r.data_expiracao BETWEEN ? AND ?) AS cashback_gerado, " +
+            "           (SELECT COALESCE(SUM(r.valor - COALESCE(r.valor_utilizado, 0)), 0) FROM registros_cashback r " +
+            "            WHERE r.data_expiracao = ? AND r.utilizado = FALSE AND r.expirado = TRUE) AS cashback_expirado " +
+            "    FROM vendas v " +
+            "    WHERE v.data_venda >= ? AND v.data_venda < ? " +
+            "    AND " + SEM_EVENTO_PENDENTE.formatted("v.id") + " " +
+            ") d " +
+            "WHERE d.quantidade_vendas > 0 OR d.cashback_gerado > 0 OR d.cashback_expirado > 0";
+
+    private static final String SQL_RECONSTRUIR_PRODUTOS_DIA =
+            "INSERT INTO indicadores_produtos_diarios (dia, produto_id, quantidade, faturamento) " +
+            "SELECT CAST(? AS DATE), i.produto_id, SUM(i.quantidade), SUM(i.quantidade * i.preco_unitario) " +
+            "FROM itens_venda i " +
+            "WHERE i.data_venda >= ? AND i.data_venda < ? " +
+            "AND " + SEM_EVENTO_PENDENTE.formatted("i.venda_id") + " " +
+            "GROUP BY i.produto_id";
+
+    // Partições movidas para o schema arquivo por ManutencaoParticoesJob (tabela_AAAA_MM)
+    private static final Pattern PARTICAO_ARQUIVADA =
+            Pattern.compile("(?:vendas|itens_venda|registros_cashback)_(\\d{4}_\\d{2})");
+    private static final DateTimeFormatter SUFIXO = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final IndicadorDiarioRepository indicadorDiarioRepository;
+    private final IndicadorProdutoDiarioRepository indicadorProdutoDiarioRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Desligado nos bancos sem INSERT ... ON CONFLICT (benchmarks em H2): só a reconstrução atualiza
+    @Value("${fidelidade.indicadores.incremental:true}")
+    private boolean incremental;
+
+    @Value("${fidelidade.indicadores.tamanho-ranking:10}")
+    private int tamanhoRanking;
+
+    @Value("${fidelidade.cashback.geracao.max-tentativas:5}")
+    private int maxTentativas;
+
+    // Cada dia reconstruído ocupa uma conexão: manter abaixo do tamanho do pool
+    private final ExecutorService executorReconstrucao;
+    private final ReentrantLock lockReconstrucao = new ReentrantLock();
+
+    public IndicadoresService(IndicadorDiarioRepository indicadorDiarioRepository,
+                              IndicadorProdutoDiarioRepository indicadorProdutoDiarioRepository,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${fidelidade.indicadores.reconstrucao.paralelismo:4}") int paralelismo) {
+        this.indicadorDiarioRepository = indicadorDiarioRepository;
+        this.indicadorProdutoDiarioRepository = indicadorProdutoDiarioRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.executorReconstrucao = Executors.newFixedThreadPool(paralelismo,
+                new CustomizableThreadFactory("indicadores-reconstrucao-"));
+    }
+
+    /**
+     * Soma aos indicadores as vendas de um lote processado do outbox e o cashback gerado para elas,
+     * na transação do lote (CashbackService.gerarCashbackPendentes), ou a venda cujo evento esgotou
+     * as tentativas, sem cashback (CashbackService.registrarFalhaGeracao).
+     */
+    @Transactional
+    public void acumularVendas(Collection<Long> vendaIds, LocalDate vendaMaisAntiga,
+                               LocalDate dataGeracao, BigDecimal cashbackGerado) {
+        if (!incremental || vendaIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime dataMinima = vendaMaisAntiga.atStartOfDay();
+        indicadorDiarioRepository.acumularVendas(vendaIds, dataMinima);
+        indicadorProdutoDiarioRepository.acumularVendas(vendaIds, dataMinima);
+        if (cashbackGerado.signum() > 0) {
+            indicadorDiarioRepository.acumularCashbackGerado(dataGeracao, cashbackGerado);
+        }
+    }
+
+    /**
+     * Indicadores do período (inclusivo) agrupados por dia, semana ou mês, com o total
+     * e os produtos e marcas de maior faturamento.
+     */
+    @Timed(value = "fidelidade.indicadores.consulta", description = "Consulta dos indicadores de vendas", histogram = true)
+    @Transactional(readOnly = true)
+    public IndicadoresVendasDTO consultar(LocalDate inicio, LocalDate fim, Agrupamento agrupamento) {
+        validarPeriodo(inicio, fim);
+
+        Periodo total = new Periodo(inicio);
+        Map<LocalDate, Periodo> periodos = new TreeMap<>();
+        for (IndicadorDiario dia : indicadorDiarioRepository.buscarPorPeriodo(inicio, fim)) {
+            total.somar(dia);
+            periodos.computeIfAbsent(inicioDoPeriodo(dia.getDia(), agrupamento), Periodo::new).somar(dia);
+        }
+
+        IndicadoresVendasDTO indicadores = new IndicadoresVendasDTO();
+        indicadores.setInicio(inicio);
+        indicadores.setFim(fim);
+        indicadores.setAgrupamento(agrupamento.name());
+        indicadores.setTotal(total);
+        indicadores.setPeriodos(new ArrayList<>(periodos.values()));
+        indicadorProdutoDiarioRepository.rankingProdutos(inicio, fim, Limit.of(tamanhoRanking))
+                .forEach(produto -> indicadores.getProdutos().add(new ItemRanking(produto.getProdutoId(),
+                        produto.getNome(), produto.getMarca(), produto.getQuantidade(), produto.getFaturamento())));
+        indicadorProdutoDiarioRepository.rankingMarcas(inicio, fim, Limit.of(tamanhoRanking))
+                .forEach(marca -> indicadores.getMarcas().add(new ItemRanking(null,
+                        marca.getMarca(), marca.getMarca(), marca.getQuantidade(), marca.getFaturamento())));
+        return indicadores;
+    }
+
+    private static LocalDate inicioDoPeriodo(LocalDate dia, Agrupamento agrupamento) {
+        return switch (agrupamento) {
+            case DIA -> dia;
+            case SEMANA -> dia.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES -> dia.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * Recalcula os indicadores dos dias do período a partir de vendas, itens e registros de cashback,
+     * cada dia na sua transação e vários em paralelo. Dias até o último mês arquivado ficam como estão:
+     * sem as partições arquivadas, os indicadores são o único registro deles. Uma reconstrução por vez.
+     */
+    public ResultadoReconstrucaoIndicadoresDTO reconstruir(LocalDate inicio, LocalDate fim) {
+        validarPeriodo(inicio, fim);
+
+        lockReconstrucao.lock();
+        try {
+            LocalDate primeiroDia = primeiroDiaReconstruivel();
+            LocalDate hoje = LocalDate.now();
+            LocalDate de = inicio.isBefore(primeiroDia) ? primeiroDia : inicio;
+            LocalDate ate = fim.isAfter(hoje) ? hoje : fim;
+
+            ResultadoReconstrucaoIndicadoresDTO resultado = new ResultadoReconstrucaoIndicadoresDTO();
+            resultado.setInicio(de);
+            resultado.setFim(ate);
+            if (ate.isBefore(de)) {
+                return resultado;
+            }
+
+            Map<LocalDate, CompletableFuture<Boolean>> tarefas = new TreeMap<>();
+            de.datesUntil(ate.plusDays(1)).forEach(dia ->
+                    tarefas.put(dia, CompletableFuture.supplyAsync(() -> reconstruirDia(dia), executorReconstrucao)));
+
+            tarefas.forEach((dia, tarefa) -> {
+                if (tarefa.join()) {
+                    resultado.setDiasReconstruidos(resultado.getDiasReconstruidos() + 1);
+                } else {
+                    resultado.getDiasComFalha().add(dia);
+                }
+            });
+            log.info("Indicadores de {} a {} reconstruídos ({} dia(s) com falha)",
+                    de, ate, resultado.getDiasComFalha().size());
+            return resultado;
+        } finally {
+            lockReconstrucao.unlock();
+        }
+    }
+
+    // Limites do dia no calendário do banco (sem FusoHorarioJdbc): o mesmo dia de CAST(data_venda AS date)
+    // no acumularVendas e na carga da V7
+    private boolean reconstruirDia(LocalDate dia) {
+        LocalDateTime inicioDia = dia.atStartOfDay();
+        LocalDateTime fimDia = dia.plusDays(1).atStartOfDay();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(SQL_APAGAR_DIA, dia);
+                jdbcTemplate.update(SQL_APAGAR_PRODUTOS_DIA, dia);
+                jdbcTemplate.update(SQL_RECONSTRUIR_DIA, ps -> {
+                    ps.setObject(1, dia);
+                    ps.setObject(2, dia);
+                    ps.setObject(3, dia);
+                    ps.setObject(4, dia.plusDays(CashbackService.DIAS_EXPIRACAO));
+                    ps.setObject(5, dia);
+                    ps.setObject(6, inicioDia);
+                    ps.setObject(7, fimDia);
+                    ps.setInt(8, maxTentativas);
+                });
+                jdbcTemplate.update(SQL_RECONSTRUIR_PRODUTOS_DIA, ps -> {
+                    ps.setObject(1, dia);
+                    ps.setObject(2, inicioDia);
+                    ps.setObject(3, fimDia);
+                    ps.setInt(4, maxTentativas);
+                });
+            });
+            return true;
+        } catch (RuntimeException e) {
+            // Ex: venda do dia processada pelo GeradorCashbackJob ao mesmo tempo; o dia pode ser pedido de novo
+            log.warn("Falha ao reconstruir os indicadores de {}", dia, e);
+            return false;
+        }
+    }
+
+    // Dia seguinte ao último mês arquivado de vendas, itens ou cashback
+    private LocalDate primeiroDiaReconstruivel() {
+        return jdbcTemplate.queryForList(
+                        "SELECT table_name FROM information_schema.tables WHERE table_schema = 'arquivo'",
+                        String.class).stream()
+                .map(PARTICAO_ARQUIVADA::matcher)
+                .filter(Matcher::matches)
+                .map(particao -> YearMonth.parse(particao.group(1), SUFIXO).plusMonths(1).atDay(1))
+                .max(Comparator.naturalOrder())
+                .orElse(LocalDate.MIN);
+    }
+
+    private static void validarPeriodo(LocalDate inicio, LocalDate fim) {
+        if (inicio == null || fim == null || fim.isBefore(inicio)) {
+            throw new IllegalArgumentException("Informe um período válido (inicio e fim)");
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executorReconstrucao.shutdownNow();
+    }
+}
@@ -0,0 +1,175 @@
+package com.bagatelle.fidelidade.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Manutenção das partições mensais de vendas, itens_venda e registros_cashback (V6__particionamento_mensal.sql).
+ * Cria com antecedência as partições dos próximos meses e arquiva as encerradas: vendas (com seus itens)
+ * mais antigas que a retenção e meses de cashback já todo expirado ou utilizado. A partição arquivada
+ * sai da tabela (e das consultas) e vai para o schema arquivo, então as tabelas em uso ficam do
+ * tamanho da retenção, não do histórico inteiro.
+ * Como não há chaves estrangeiras para vendas (as partições não poderiam ser arquivadas), confere também
+ * itens, registros de cashback e eventos do outbox recentes sem venda correspondente e registra no log.
+ * Roda na inicialização e diariamente. Desligada com fidelidade.particoes.manutencao=false (bancos que não são PostgreSQL).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fidelidade.particoes.manutencao", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ManutencaoParticoesJob {
+
+    private static final List<String> TABELAS = List.of("vendas", "itens_venda", "registros_cashback");
+    private static final DateTimeFormatter SUFIXO = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Deve cobrir a validade do cashback (90 dias), que define a partição dos registros novos
+    @Value("${fidelidade.particoes.meses-futuros:3}")
+    private int mesesFuturos;
+
+    @Value("${fidelidade.particoes.retencao-vendas-meses:24}")
+    private int retencaoVendasMeses;
+
+    @Value("${fidelidade.particoes.retencao-cashback-meses:6}")
+    private int retencaoCashbackMeses;
+
+    // Método de acesso das tabelas arquivadas (ex: columnar, comprimido); vazio mantém heap
+    @Value("${fidelidade.particoes.arquivo.metodo-acesso:}")
+    private String metodoAcesso;
+
+    // Janela da conferência de linhas sem venda: só as partições recentes são lidas
+    @Value("${fidelidade.particoes.verificacao-orfaos-dias:7}")
+    private int verificacaoOrfaosDias;
+
+    private static final String SQL_ITENS_ORFAOS =
+            "SELECT COUNT(*) FROM itens_venda i " +
+            "WHERE i.data_venda >= ? " +
+            "AND NOT EXISTS (SELECT 1 FROM vendas v WHERE v.id = i.venda_id AND v.data_venda = i.data_venda)";
+
+    // O registro expira CashbackService.DIAS_EXPIRACAO depois de gerado: o limite de expiração
+    // restringe a busca às partições dos registros gerados na janela
+    private static final String SQL_REGISTROS_ORFAOS =
+            "SELECT COUNT(*) FROM registros_cashback r " +
+            "WHERE r.data_expiracao >= ? AND r.data_geracao >= ? AND r.venda_id IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM vendas v WHERE v.id = r.venda_id)";
+
+    private static final String SQL_EVENTOS_ORFAOS =
+            "SELECT COUNT(*) FROM eventos_venda e " +
+            "WHERE e.processado_em IS NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM vendas v WHERE v.id = e.venda_id)";
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${fidelidade.particoes.cron:0 30 3 * * *}")
+    public void manterParticoes() {
+        YearMonth atual = YearMonth.now();
+        try {
+            criarParticoesFuturas(atual);
+            arquivarVendas(atual.minusMonths(retencaoVendasMeses));
+            arquivarCashback(atual.minusMonths(retencaoCashbackMeses));
+        } catch (RuntimeException e) {
+            // Sem a partição do mês as linhas caem na partição padrão; a próxima execução tenta de novo
+            log.error("Falha na manutenção das partições", e);
+        }
+        verificarOrfaos();
+    }
+
+    /**
+     * Conta itens, registros de cashback e eventos pendentes sem a venda correspondente.
+     * Não corrige nada: uma linha órfã indica gravação fora dos caminhos da aplicação.
+     */
+    private void verificarOrfaos() {
+        LocalDate inicio = LocalDate.now().minusDays(verificacaoOrfaosDias);
+        try {
+            Long itens = jdbcTemplate.queryForObject(SQL_ITENS_ORFAOS, Long.class, inicio.atStartOfDay());
+            Long registros = jdbcTemplate.queryForObject(SQL_REGISTROS_ORFAOS, Long.class,
+                    inicio.plusDays(CashbackService.DIAS_EXPIRACAO), inicio);
+            Long eventos = jdbcTemplate.queryForObject(SQL_EVENTOS_ORFAOS, Long.class);
+            if (itens + registros + eventos > 0) {
+                log.warn("Linhas sem venda correspondente desde {}: {} item(ns), {} registro(s) de cashback, "
+                        + "{} evento(s) pendente(s)", inicio, itens, registros, eventos);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao conferir linhas sem venda correspondente", e);
+        }
+    }
+
+    private void criarParticoesFuturas(YearMonth atual) {
+        for (String tabela : TABELAS) {
+            for (int i = 0; i <= mesesFuturos; i++) {
+                YearMonth mes = atual.plusMonths(i);
+                Boolean criada = jdbcTemplate.queryForObject("SELECT criar_particao_mensal(?, ?)",
+                        Boolean.class, tabela, mes.atDay(1));
+                if (Boolean.TRUE.equals(criada)) {
+                    log.info("Partição {}_{} criada", tabela, mes.format(SUFIXO));
+                }
+            }
+        }
+    }
+
+    /**
+     * Arquiva os meses de vendas anteriores ao limite, cada mês com os itens na mesma transação.
+     */
+    private void arquivarVendas(YearMonth limite) {
+        for (YearMonth mes : mesesAnteriores("vendas", limite)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                arquivar("itens_venda", mes);
+                arquivar("vendas", mes);
+            });
+            log.info("Vendas de {} arquivadas", mes);
+        }
+    }
+
+    /**
+     * Arquiva os meses de expiração anteriores ao limite em que todos os registros estão
+     * expirados ou utilizados. Mês com registro ainda em aberto espera a ExpiracaoCashbackJob.
+     */
+    private void arquivarCashback(YearMonth limite) {
+        for (YearMonth mes : mesesAnteriores("registros_cashback", limite)) {
+            String particao = "registros_cashback_" + mes.format(SUFIXO);
+            Boolean encerrada = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM " + particao + " WHERE utilizado = false AND expirado = false)",
+                    Boolean.class);
+            if (!Boolean.TRUE.equals(encerrada)) {
+                log.warn("Partição {} tem cashback em aberto e não foi arquivada", particao);
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> arquivar("registros_cashback", mes));
+            log.info("Cashback com expiração em {} arquivado", mes);
+        }
+    }
+
+    private void arquivar(String tabela, YearMonth mes) {
+        jdbcTemplate.queryForObject("SELECT arquivar_particao(?, ?, ?)",
+                Boolean.class, tabela, mes.atDay(1), metodoAcesso);
+    }
+
+    // Meses das partições da tabela anteriores ao limite (a partição padrão não entra)
+    private List<YearMonth> mesesAnteriores(String tabela, YearMonth limite) {
+        String prefixo = tabela + "_";
+        return jdbcTemplate.queryForList(
+                        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = CAST(? AS regclass)",
+                        String.class, tabela).stream()
+                .map(particao -> particao.substring(prefixo.length()))
+                .filter(sufixo -> sufixo.matches("\\d{4}_\\d{2}"))
+                .map(sufixo -> YearMonth.parse(sufixo, SUFIXO))
+                .filter(mes -> mes.isBefore(limite))
+                .sorted()
+                .toList();
+    }
+}
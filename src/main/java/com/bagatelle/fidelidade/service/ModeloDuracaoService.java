@@ -0,0 +1,45 @@
+package com.bagatelle.fidelidade.service;
+
+import com.bagatelle.fidelidade.model.ModeloDuracao;
+import com.bagatelle.fidelidade.model.Produto;
+import com.bagatelle.fidelidade.repository.FaixaDuracaoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Mantém em memória o modelo de duração dos frascos (tabela faixas_duracao).
+ * As faixas mudam raramente; depois de alterá-las, chame recarregar() e
+ * ProdutoService.reconciliarDuracoes() para propagar às previsões de recompra.
+ */
+@Service
+@RequiredArgsConstructor
+public class ModeloDuracaoService {
+
+    private final FaixaDuracaoRepository faixaDuracaoRepository;
+
+    private volatile ModeloDuracao modelo;
+
+    public ModeloDuracao getModelo() {
+        ModeloDuracao atual = modelo;
+        if (atual == null) {
+            atual = recarregar();
+        }
+        return atual;
+    }
+
+    public ModeloDuracao recarregar() {
+        ModeloDuracao novo = ModeloDuracao.de(faixaDuracaoRepository.findAll());
+        modelo = novo;
+        return novo;
+    }
+
+    /**
+     * Duração efetiva do produto: a informada manualmente ou a estimada pelas faixas.
+     */
+    public int calcularDuracaoDias(Produto produto) {
+        if (produto.getDuracaoDias() != null) {
+            return produto.getDuracaoDias();
+        }
+        return getModelo().duracaoDias(produto.getMarca(), produto.getVolumeNumerico());
+    }
+}
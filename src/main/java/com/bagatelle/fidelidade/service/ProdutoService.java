@@ -1,12 +1,31 @@
 package com.bagatelle.fidelidade.service;
 
 import com.bagatelle.fidelidade.model.Produto;
+import com.bagatelle.fidelidade.repository.ItemVendaRepository;
 import com.bagatelle.fidelidade.repository.ProdutoRepository;
+import com.bagatelle.fidelidade.service.VersaoDadosService.Area;
+import com.bagatelle.fidelidade.util.NormalizadorTexto;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -14,43 +33,197 @@ import java.util.List;
 public class ProdutoService {
 
     private final ProdutoRepository produtoRepository;
+    private final ItemVendaRepository itemVendaRepository;
+    private final ModeloDuracaoService modeloDuracaoService;
+    private final VersaoDadosService versaoDadosService;
 
+    private final CacheManager cacheManager;
+    private final EntityManager entityManager;
+
+    private static final int LIMITE_BUSCA = 15;
+
+    // Catálogo em cache (Caffeine, ver spring.cache.* no application.properties).
+    // Os produtos em cache são instâncias desanexadas e compartilhadas: só leitura.
+    public static final String CACHE_PRODUTOS = "produtos";
+    public static final String CACHE_CATALOGO = "catalogoProdutos";
+    public static final String CACHE_POR_MARCA = "produtosPorMarca";
+
+    @Cacheable(cacheNames = CACHE_CATALOGO, key = "'todos'")
     public List<Produto> listarTodos() {
         return produtoRepository.findAllOrdenados();
     }
 
+    // Chamadas internas (atualizar, deletar) não passam pelo proxy e leem do banco
+    @Cacheable(cacheNames = CACHE_PRODUTOS, key = "#id")
     public Produto buscarPorId(Long id) {
         return produtoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Produto não encontrado com ID: " + id));
     }
 
+    /**
+     * Busca vários produtos de uma vez, indexados pelo ID. Usa o cache de produtos
+     * e consulta o banco (numa única consulta) só os que faltarem.
+     * Falha se algum dos IDs não existir.
+     */
+    public Map<Long, Produto> buscarPorIds(Collection<Long> ids) {
+        Map<Long, Produto> produtos = buscarExistentes(ids);
+        for (Long id : ids) {
+            if (!produtos.containsKey(id)) {
+                throw new RuntimeException("Produto não encontrado com ID: " + id);
+            }
+        }
+        return produtos;
+    }
+
+    /**
+     * Como buscarPorIds, mas os IDs que não existem só ficam de fora do resultado.
+     * Roda na transação de quem chama (ex: registrarVenda): os produtos lidos do banco são
+     * desanexados antes de ir para o cache, senão outras threads leriam instâncias que essa
+     * sessão ainda pode alterar no flush.
+     */
+    public Map<Long, Produto> buscarExistentes(Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(CACHE_PRODUTOS);
+        Map<Long, Produto> produtos = new HashMap<>();
+        Set<Long> faltantes = new HashSet<>();
+
+        for (Long id : ids) {
+            Produto produto = cache != null ? cache.get(id, Produto.class) : null;
+            if (produto != null) {
+                produtos.put(id, produto);
+            } else {
+                faltantes.add(id);
+            }
+        }
+
+        if (!faltantes.isEmpty()) {
+            for (Produto produto : produtoRepository.findAllById(faltantes)) {
+                entityManager.detach(produto);
+                produtos.put(produto.getId(), produto);
+                if (cache != null) {
+                    cache.put(produto.getId(), produto);
+                }
+            }
+        }
+        return produtos;
+    }
+
+    /**
+     * Busca para o autocomplete: ignora acentos e maiúsculas e limita o número de resultados.
+     */
+    @Transactional(readOnly = true)
     public List<Produto> buscarPorNomeOuMarca(String termo) {
-        return produtoRepository.buscarPorNomeOuMarca(termo);
+        String termoNormalizado = NormalizadorTexto.normalizar(termo);
+        if (termoNormalizado.isEmpty()) {
+            return List.of();
+        }
+        return produtoRepository.buscarPorNomeOuMarca(termoNormalizado, Limit.of(LIMITE_BUSCA));
     }
 
+    @Cacheable(cacheNames = CACHE_POR_MARCA, key = "#marca.toLowerCase()")
     public List<Produto> buscarPorMarca(String marca) {
         return produtoRepository.findByMarcaIgnoreCase(marca);
     }
 
     public Produto salvar(Produto produto) {
         validarProduto(produto);
+        produto.setDuracaoEstimadaDias(modeloDuracaoService.calcularDuracaoDias(produto));
+        versaoDadosService.registrarAlteracao(Area.CATALOGO);
+        limparCachesAposCommit();
         return produtoRepository.save(produto);
     }
 
     public Produto atualizar(Long id, Produto produtoAtualizado) {
         Produto produtoExistente = buscarPorId(id);
+        Integer duracaoAnterior = produtoExistente.getDuracaoEstimadaDias();
 
         produtoExistente.setNomePerfume(produtoAtualizado.getNomePerfume());
         produtoExistente.setMarca(produtoAtualizado.getMarca());
         produtoExistente.setVolume(produtoAtualizado.getVolume());
         produtoExistente.setPrecoVenda(produtoAtualizado.getPrecoVenda());
+        produtoExistente.setDuracaoDias(produtoAtualizado.getDuracaoDias());
+        produtoExistente.setDuracaoEstimadaDias(modeloDuracaoService.calcularDuracaoDias(produtoExistente));
+
+        Produto salvo = produtoRepository.save(produtoExistente);
+
+        // Volume, marca ou duração manual mudam a duração do frasco e as previsões de recompra
+        if (!Objects.equals(duracaoAnterior, salvo.getDuracaoEstimadaDias())) {
+            itemVendaRepository.recalcularPrevisaoTermino(salvo.getId(), salvo.getDuracaoEstimadaDias());
+        }
 
-        return produtoRepository.save(produtoExistente);
+        versaoDadosService.registrarAlteracao(Area.CATALOGO);
+        limparCachesAposCommit();
+        return salvo;
     }
 
     public void deletar(Long id) {
         Produto produto = buscarPorId(id);
         produtoRepository.delete(produto);
+        versaoDadosService.registrarAlteracao(Area.CATALOGO);
+        limparCachesAposCommit();
+    }
+
+    /**
+     * Confere volume em ml e duração de cada produto com o modelo de faixas atual.
+     * Só os produtos que mudaram (faixas alteradas, coluna recém-criada) são gravados, e as previsões
+     * de recompra deles recalculadas numa única atualização; itens sem previsão são preenchidos em outra.
+     * Sem mudanças, a inicialização lê o catálogo e não altera nada.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconciliarDuracoes() {
+        modeloDuracaoService.recarregar();
+
+        List<Produto> alterados = new ArrayList<>();
+        List<Long> duracoesAlteradas = new ArrayList<>();
+        for (Produto produto : produtoRepository.findAll()) {
+            int volumeMl = Produto.interpretarVolumeMl(produto.getVolume());
+            boolean volumeAlterado = !Objects.equals(produto.getVolumeMl(), volumeMl);
+            produto.setVolumeMl(volumeMl);
+
+            int duracao = modeloDuracaoService.calcularDuracaoDias(produto);
+            boolean duracaoAlterada = !Objects.equals(produto.getDuracaoEstimadaDias(), duracao);
+            produto.setDuracaoEstimadaDias(duracao);
+
+            if (volumeAlterado || duracaoAlterada) {
+                alterados.add(produto);
+            }
+            if (duracaoAlterada) {
+                duracoesAlteradas.add(produto.getId());
+            }
+        }
+
+        if (!alterados.isEmpty()) {
+            produtoRepository.saveAll(alterados);
+            versaoDadosService.registrarAlteracao(Area.CATALOGO);
+            limparCachesAposCommit();
+        }
+        if (!duracoesAlteradas.isEmpty()) {
+            itemVendaRepository.recalcularPrevisaoTerminoProdutos(duracoesAlteradas);
+        }
+        itemVendaRepository.preencherPrevisoesPendentes();
+    }
+
+    // Limpa o catálogo em cache só depois do commit, como o VersaoDadosService: limpo antes, uma leitura
+    // concorrente recolocaria no cache o produto ainda sem a alteração. No rollback o cache fica como está
+    private void limparCachesAposCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    limparCaches();
+                }
+            });
+        } else {
+            limparCaches();
+        }
+    }
+
+    private void limparCaches() {
+        for (String nome : List.of(CACHE_PRODUTOS, CACHE_CATALOGO, CACHE_POR_MARCA)) {
+            Cache cache = cacheManager.getCache(nome);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
     }
 
     private void validarProduto(Produto produto) {
@@ -0,0 +1,399 @@
+package com.bagatelle.fidelidade.service;
+
+import com.bagatelle.fidelidade.config.FusoHorarioJdbc;
+import com.bagatelle.fidelidade.dto.ItemVendaDTO;
+import com.bagatelle.fidelidade.dto.NovaVendaDTO;
+import com.bagatelle.fidelidade.dto.ResultadoSincronizacaoDTO;
+import com.bagatelle.fidelidade.dto.ResultadoSincronizacaoDTO.Situacao;
+import com.bagatelle.fidelidade.dto.ResultadoSincronizacaoDTO.VendaSincronizada;
+import com.bagatelle.fidelidade.event.VendaRegistradaEvent;
+import com.bagatelle.fidelidade.model.ChaveIdempotencia;
+import com.bagatelle.fidelidade.model.Cliente;
+import com.bagatelle.fidelidade.model.ItemVenda;
+import com.bagatelle.fidelidade.model.Produto;
+import com.bagatelle.fidelidade.model.Venda;
+import com.bagatelle.fidelidade.repository.ChaveIdempotenciaRepository;
+import com.bagatelle.fidelidade.repository.ClienteRepository;
+import com.bagatelle.fidelidade.repository.ItemVendaRepository;
+import com.bagatelle.fidelidade.repository.VendaRepository;
+import com.bagatelle.fidelidade.service.VersaoDadosService.Area;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sincronização das vendas feitas no terminal (PDV) sem conexão. O terminal guarda as vendas
+ * numa fila, cada uma com uma chave de idempotência, e envia a fila inteira quando a conexão volta.
+ * Clientes, produtos e vendas já recebidas são consultados uma vez para a fila toda; as vendas
+ * válidas são gravadas em lotes via JDBC, cada lote na sua transação. As vendas que usam cashback
+ * são gravadas por cliente, junto com o débito (um por cliente): se o débito falhar, só as vendas
+ * daquele cliente são rejeitadas. Reenviar a fila é seguro: as chaves já gravadas voltam como DUPLICADA.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SincronizacaoVendasService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FusoHorarioJdbc fusoHorarioJdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final VendaRepository vendaRepository;
+    private final ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+    private final ItemVendaRepository itemVendaRepository;
+    private final ClienteRepository clienteRepository;
+    private final ProdutoService produtoService;
+    private final VendaService vendaService;
+    private final CashbackService cashbackService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VersaoDadosService versaoDadosService;
+
+    @Value("${fidelidade.sincronizacao.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    @Value("${fidelidade.sincronizacao.maximo-vendas:5000}")
+    private int maximoVendas;
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 64;
+
+    private static final String SQL_INSERIR_VENDA =
+            "INSERT INTO vendas (cliente_id, data_venda, valor_total, valor_cashback_usado, chave_idempotencia) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_INSERIR_CHAVE =
+            "INSERT INTO chaves_idempotencia (chave, venda_id) VALUES (?, ?)";
+
+    /**
+     * Sincroniza a fila de vendas do terminal. Cada venda volta no resultado, na ordem recebida,
+     * como registrada, duplicada (já recebida antes) ou rejeitada com o motivo.
+     */
+    @Timed(value = "fidelidade.venda.sincronizacao", description = "Sincronização de vendas do terminal", histogram = true)
+    public ResultadoSincronizacaoDTO sincronizar(List<NovaVendaDTO> vendas) {
+        if (vendas == null || vendas.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma venda para sincronizar");
+        }
+        if (vendas.size() > maximoVendas) {
+            throw new IllegalArgumentException("No máximo " + maximoVendas + " vendas por sincronização; "
+                    + "envie a fila em partes");
+        }
+
+        VendaSincronizada[] situacoes = new VendaSincronizada[vendas.size()];
+
+        // Validação de cada venda e chaves repetidas dentro da própria fila
+        Set<String> chaves = new HashSet<>();
+        for (int i = 0; i < vendas.size(); i++) {
+            NovaVendaDTO venda = vendas.get(i);
+            if (venda == null) {
+                situacoes[i] = rejeitada(null, "Venda vazia");
+                continue;
+            }
+            String erro = validar(venda);
+            if (erro != null) {
+                situacoes[i] = rejeitada(venda.getChaveIdempotencia(), erro);
+            } else if (!chaves.add(venda.getChaveIdempotencia())) {
+                situacoes[i] = new VendaSincronizada(venda.getChaveIdempotencia(), Situacao.DUPLICADA, null,
+                        "Chave repetida na mesma sincronização");
+            }
+        }
+
+        // Uma consulta para cada: vendas já recebidas, produtos e clientes da fila toda
+        Map<String, Long> jaRecebidas = chaves.isEmpty() ? Map.of() : buscarRecebidas(chaves);
+
+        Set<Long> produtoIds = new HashSet<>();
+        Set<Long> clienteIds = new HashSet<>();
+        for (int i = 0; i < vendas.size(); i++) {
+            if (situacoes[i] == null) {
+                vendas.get(i).getItens().forEach(item -> produtoIds.add(item.getProdutoId()));
+                clienteIds.add(vendas.get(i).getClienteId());
+            }
+        }
+        Map<Long, Produto> produtos = produtoService.buscarExistentes(produtoIds);
+        Map<Long, Cliente> clientes = clienteRepository.findAllById(clienteIds).stream()
+                .collect(Collectors.toMap(Cliente::getId, cliente -> cliente));
+
+        // Monta as vendas a gravar. O cashback usado offline é conferido contra o saldo atual,
+        // descontando as vendas anteriores do mesmo cliente na fila
+        Map<Long, BigDecimal> saldoRestante = new HashMap<>();
+        List<VendaPendente> pendentes = new ArrayList<>();
+        for (int i = 0; i < vendas.size(); i++) {
+            if (situacoes[i] != null) {
+                continue;
+            }
+            NovaVendaDTO dto = vendas.get(i);
+            String chave = dto.getChaveIdempotencia();
+
+            Long vendaExistente = jaRecebidas.get(chave);
+            if (vendaExistente != null) {
+                situacoes[i] = new VendaSincronizada(chave, Situacao.DUPLICADA, vendaExistente, "Venda já sincronizada");
+                continue;
+            }
+
+            Cliente cliente = clientes.get(dto.getClienteId());
+            if (cliente == null) {
+                situacoes[i] = rejeitada(chave, "Cliente não encontrado com ID: " + dto.getClienteId());
+                continue;
+            }
+
+            LocalDateTime dataVenda = dto.getDataVenda() != null ? dto.getDataVenda() : LocalDateTime.now();
+            List<ItemVenda> itens = new ArrayList<>(dto.getItens().size());
+            BigDecimal valorTotal = BigDecimal.ZERO;
+            String erro = null;
+            for (ItemVendaDTO itemDto : dto.getItens()) {
+                Produto produto = produtos.get(itemDto.getProdutoId());
+                if (produto == null) {
+                    erro = "Produto não encontrado com ID: " + itemDto.getProdutoId();
+                    break;
+                }
+                ItemVenda item = ItemVenda.builder()
+                        .produto(produto)
+                        .quantidade(itemDto.getQuantidade())
+                        .precoUnitario(produto.getPrecoVenda())
+                        .dataVenda(dataVenda)
+                        .build();
+                item.atualizarPrevisaoTermino(dataVenda.toLocalDate());
+                itens.add(item);
+                valorTotal = valorTotal.add(item.calcularSubtotal());
+            }
+            if (erro != null) {
+                situacoes[i] = rejeitada(chave, erro);
+                continue;
+            }
+
+            BigDecimal cashbackUsado = dto.getValorCashbackUsado() != null ? dto.getValorCashbackUsado() : BigDecimal.ZERO;
+            try {
+                vendaService.validarCashbackUsado(cashbackUsado, valorTotal);
+            } catch (RuntimeException e) {
+                situacoes[i] = rejeitada(chave, e.getMessage());
+                continue;
+            }
+
+            BigDecimal saldo = saldoRestante.computeIfAbsent(cliente.getId(), id -> cliente.getSaldoCashback());
+            if (cashbackUsado.compareTo(saldo) > 0) {
+                situacoes[i] = rejeitada(chave, "Saldo de cashback insuficiente. Disponível: R$ " + saldo);
+                continue;
+            }
+            saldoRestante.put(cliente.getId(), saldo.subtract(cashbackUsado));
+
+            pendentes.add(new VendaPendente(i, chave, cliente, dataVenda, itens, valorTotal, cashbackUsado));
+        }
+
+        // Vendas sem cashback em lotes; as com cashback numa transação por cliente, com o débito,
+        // para que um saldo alterado desde a conferência rejeite só as vendas daquele cliente
+        List<VendaPendente> semCashback = new ArrayList<>();
+        Map<Long, List<VendaPendente>> comCashbackPorCliente = new LinkedHashMap<>();
+        for (VendaPendente venda : pendentes) {
+            if (venda.cashbackUsado().compareTo(BigDecimal.ZERO) > 0) {
+                comCashbackPorCliente.computeIfAbsent(venda.cliente().getId(), id -> new ArrayList<>()).add(venda);
+            } else {
+                semCashback.add(venda);
+            }
+        }
+
+        try {
+            for (int inicio = 0; inicio < semCashback.size(); inicio += tamanhoLote) {
+                gravar(semCashback.subList(inicio, Math.min(inicio + tamanhoLote, semCashback.size())), situacoes);
+            }
+            for (List<VendaPendente> vendasCliente : comCashbackPorCliente.values()) {
+                gravar(vendasCliente, situacoes);
+            }
+        } finally {
+            if (!pendentes.isEmpty()) {
+                versaoDadosService.registrarAlteracao(Area.VENDAS);
+            }
+        }
+
+        ResultadoSincronizacaoDTO resultado = new ResultadoSincronizacaoDTO();
+        resultado.setRecebidas(vendas.size());
+        for (VendaSincronizada situacao : situacoes) {
+            resultado.adicionar(situacao);
+        }
+
+        log.info("Sincronização de vendas: {} recebida(s), {} registrada(s), {} duplicada(s), {} rejeitada(s)",
+                resultado.getRecebidas(), resultado.getRegistradas(), resultado.getDuplicadas(), resultado.getRejeitadas());
+        return resultado;
+    }
+
+    /**
+     * Grava o lote numa transação e registra a situação de cada venda. Se outra sincronização da
+     * mesma fila gravou parte do lote depois da consulta inicial (violação da chave de idempotência),
+     * essas vendas voltam como DUPLICADA e o restante é gravado de novo.
+     */
+    private void gravar(List<VendaPendente> lote, VendaSincronizada[] situacoes) {
+        List<VendaPendente> restantes = lote;
+        while (!restantes.isEmpty()) {
+            List<VendaPendente> tentativa = restantes;
+            try {
+                List<Long> ids = transactionTemplate.execute(status -> gravarLote(tentativa));
+                for (int j = 0; j < tentativa.size(); j++) {
+                    VendaPendente venda = tentativa.get(j);
+                    situacoes[venda.posicao()] = new VendaSincronizada(venda.chave(), Situacao.REGISTRADA, ids.get(j), null);
+                }
+                return;
+            } catch (DataIntegrityViolationException e) {
+                Map<String, Long> gravadas = buscarRecebidas(tentativa.stream().map(VendaPendente::chave).toList());
+                if (gravadas.isEmpty()) {
+                    rejeitarLote(tentativa, situacoes, e);
+                    return;
+                }
+                log.debug("{} venda(s) do lote gravada(s) por outra sincronização; gravando o restante", gravadas.size());
+                for (VendaPendente venda : tentativa) {
+                    Long vendaId = gravadas.get(venda.chave());
+                    if (vendaId != null) {
+                        situacoes[venda.posicao()] = new VendaSincronizada(venda.chave(), Situacao.DUPLICADA, vendaId,
+                                "Venda já sincronizada");
+                    }
+                }
+                restantes = tentativa.stream()
+                        .filter(venda -> !gravadas.containsKey(venda.chave()))
+                        .toList();
+            } catch (RuntimeException e) {
+                rejeitarLote(tentativa, situacoes, e);
+                return;
+            }
+        }
+    }
+
+    // Vendas já recebidas, por chave
+    private Map<String, Long> buscarRecebidas(Collection<String> chaves) {
+        return chaveIdempotenciaRepository.buscarPorChaves(chaves).stream()
+                .collect(Collectors.toMap(ChaveIdempotencia::getChave, ChaveIdempotencia::getVendaId));
+    }
+
+    private void rejeitarLote(List<VendaPendente> lote, VendaSincronizada[] situacoes, RuntimeException e) {
+        // O lote inteiro volta atrás
+        log.warn("Falha ao gravar lote de {} venda(s) sincronizada(s)", lote.size(), e);
+        for (VendaPendente venda : lote) {
+            situacoes[venda.posicao()] = rejeitada(venda.chave(),
+                    "Erro ao gravar o lote, envie a venda novamente: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava um lote de vendas já validadas, na transação do chamador: débito do cashback
+     * (um por cliente), vendas, chaves de idempotência e eventos do outbox em lotes JDBC e itens em lote no flush.
+     * Retorna os IDs das vendas, na ordem do lote.
+     */
+    private List<Long> gravarLote(List<VendaPendente> lote) {
+        Map<Long, Cliente> clientes = new LinkedHashMap<>();
+        Map<Long, BigDecimal> cashbackPorCliente = new HashMap<>();
+        for (VendaPendente venda : lote) {
+            if (venda.cashbackUsado().compareTo(BigDecimal.ZERO) > 0) {
+                clientes.putIfAbsent(venda.cliente().getId(), venda.cliente());
+                cashbackPorCliente.merge(venda.cliente().getId(), venda.cashbackUsado(), BigDecimal::add);
+            }
+        }
+        clientes.forEach((id, cliente) -> cashbackService.utilizarCashback(cliente, cashbackPorCliente.get(id)));
+
+        GeneratedKeyHolder chavesGeradas = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(SQL_INSERIR_VENDA, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        VendaPendente venda = lote.get(i);
+                        ps.setLong(1, venda.cliente().getId());
+                        fusoHorarioJdbc.definir(ps, 2, venda.dataVenda());
+                        ps.setBigDecimal(3, venda.valorTotal());
+                        ps.setBigDecimal(4, venda.cashbackUsado());
+                        ps.setString(5, venda.chave());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return lote.size();
+                    }
+                },
+                chavesGeradas);
+
+        List<Long> ids = chavesGeradas.getKeyList().stream()
+                .map(chaves -> ((Number) chaves.get("id")).longValue())
+                .toList();
+
+        // A chave primária de chaves_idempotencia barra a mesma venda gravada por outra sincronização
+        jdbcTemplate.batchUpdate(SQL_INSERIR_CHAVE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, lote.get(i).chave());
+                ps.setLong(2, ids.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lote.size();
+            }
+        });
+
+        List<ItemVenda> itens = new ArrayList<>();
+        for (int i = 0; i < lote.size(); i++) {
+            Venda venda = vendaRepository.getReferenceById(ids.get(i));
+            for (ItemVenda item : lote.get(i).itens()) {
+                item.setVenda(venda);
+                itens.add(item);
+            }
+        }
+        // Itens inseridos em lote no flush (sequence, hibernate.jdbc.batch_size)
+        itemVendaRepository.saveAll(itens);
+
+        // O cashback de 5% é gerado pelo GeradorCashbackJob, como nas vendas da tela
+        cashbackService.agendarGeracaoCashback(ids);
+
+        for (int i = 0; i < lote.size(); i++) {
+            eventPublisher.publishEvent(new VendaRegistradaEvent(ids.get(i), lote.get(i).cliente().getId()));
+        }
+        return ids;
+    }
+
+    private String validar(NovaVendaDTO venda) {
+        String chave = venda.getChaveIdempotencia();
+        if (chave == null || chave.isBlank()) {
+            return "Chave de idempotência é obrigatória";
+        }
+        if (chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            return "Chave de idempotência deve ter no máximo " + TAMANHO_MAXIMO_CHAVE + " caracteres";
+        }
+        if (venda.getClienteId() == null) {
+            return "Cliente é obrigatório";
+        }
+        if (venda.getItens() == null || venda.getItens().isEmpty()) {
+            return "A venda deve conter pelo menos um item";
+        }
+        for (ItemVendaDTO item : venda.getItens()) {
+            if (item == null || item.getProdutoId() == null) {
+                return "Produto é obrigatório em todos os itens";
+            }
+            if (item.getQuantidade() == null || item.getQuantidade() < 1) {
+                return "Quantidade inválida para o produto: " + item.getProdutoId();
+            }
+        }
+        return null;
+    }
+
+    private static VendaSincronizada rejeitada(String chave, String mensagem) {
+        return new VendaSincronizada(chave, Situacao.REJEITADA, null, mensagem);
+    }
+
+    // Venda validada, com preços e previsões de término calculados, à espera de gravação
+    private record VendaPendente(int posicao, String chave, Cliente cliente, LocalDateTime dataVenda,
+                                 List<ItemVenda> itens, BigDecimal valorTotal, BigDecimal cashbackUsado) {
+    }
+}
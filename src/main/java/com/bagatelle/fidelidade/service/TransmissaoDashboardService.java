@@ -0,0 +1,196 @@
+package com.bagatelle.fidelidade.service;
+
+import com.bagatelle.fidelidade.dto.AtualizacaoDashboardDTO;
+import com.bagatelle.fidelidade.event.ResumoDashboardAtualizadoEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Push do dashboard por Server-Sent Events (/dashboard/eventos). Ao conectar, a tela recebe o
+ * resumo em memória ("resumo"); a cada recálculo do DashboardService, só a diferença ("atualizacao").
+ * O custo por tela aberta é o envio de uma mensagem já serializada, sem consulta ao banco.
+ *
+ * Cada tela tem a sua fila, esvaziada num pool próprio (fidelidade.dashboard.eventos.threads): quem
+ * publica nunca espera pela rede, e um cliente lento não atrasa os outros nem ocupa o executor de
+ * tarefas do Spring, que calcula as seções do dashboard. Um cliente que acumula mensagens demais é desconectado;
+ * o EventSource do navegador reconecta e recebe o resumo completo de novo.
+ */
+@Slf4j
+@Service
+public class TransmissaoDashboardService {
+
+    private static final int LIMITE_MENSAGENS_PENDENTES = 50;
+
+    private final DashboardService dashboardService;
+    private final ObjectMapper objectMapper;
+    // Cada tela tem no máximo uma tarefa na fila do pool (flag enviando), então a fila é limitada
+    // pelo número de conexões
+    private final ExecutorService executorEnvio;
+
+    private final Set<Assinante> assinantes = ConcurrentHashMap.newKeySet();
+
+    @Value("${fidelidade.dashboard.eventos.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    public TransmissaoDashboardService(DashboardService dashboardService,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${fidelidade.dashboard.eventos.threads:4}") int threads) {
+        this.dashboardService = dashboardService;
+        this.objectMapper = objectMapper;
+        this.executorEnvio = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("dashboard-sse-"));
+        Gauge.builder("fidelidade.dashboard.conexoes", assinantes, Set::size)
+                .description("Dashboards conectados recebendo atualizações por push")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Abre a conexão de uma tela e enfileira o resumo atual como primeira mensagem.
+     */
+    public SseEmitter assinar() {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Assinante assinante = new Assinante(emitter);
+
+        emitter.onCompletion(() -> assinantes.remove(assinante));
+        emitter.onTimeout(() -> assinantes.remove(assinante));
+        emitter.onError(erro -> assinantes.remove(assinante));
+
+        assinantes.add(assinante);
+        assinante.enfileirar(new Mensagem("resumo", serializar(dashboardService.getResumo())));
+        return emitter;
+    }
+
+    @EventListener
+    public void aoAtualizarResumo(ResumoDashboardAtualizadoEvent evento) {
+        if (assinantes.isEmpty() || evento.anterior() == null) {
+            return;
+        }
+        // Serializada uma vez para todas as telas
+        Mensagem mensagem = new Mensagem("atualizacao",
+                serializar(AtualizacaoDashboardDTO.entre(evento.anterior(), evento.atual())));
+        for (Assinante assinante : assinantes) {
+            assinante.enfileirar(mensagem);
+        }
+    }
+
+    // Comentário SSE periódico: mantém a conexão aberta em proxies e detecta telas fechadas
+    @Scheduled(fixedDelayString = "${fidelidade.dashboard.eventos.heartbeat-ms:25000}")
+    public void enviarHeartbeat() {
+        for (Assinante assinante : assinantes) {
+            assinante.enfileirar(Mensagem.HEARTBEAT);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        for (Assinante assinante : assinantes) {
+            assinante.emitter.complete();
+        }
+        assinantes.clear();
+        executorEnvio.shutdownNow();
+    }
+
+    private String serializar(Object dados) {
+        try {
+            return objectMapper.writeValueAsString(dados);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao serializar atualização do dashboard", e);
+        }
+    }
+
+    // nome nulo: comentário (heartbeat)
+    private record Mensagem(String nome, String json) {
+        static final Mensagem HEARTBEAT = new Mensagem(null, null);
+    }
+
+    private final class Assinante {
+
+        private final SseEmitter emitter;
+        private final Queue<Mensagem> fila = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendentes = new AtomicInteger();
+        private final AtomicBoolean enviando = new AtomicBoolean();
+
+        Assinante(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enfileirar(Mensagem mensagem) {
+            if (pendentes.incrementAndGet() > LIMITE_MENSAGENS_PENDENTES) {
+                log.debug("Dashboard desconectado por acumular mensagens sem receber");
+                desconectar();
+                return;
+            }
+            fila.add(mensagem);
+            agendarEnvio();
+        }
+
+        private void agendarEnvio() {
+            if (enviando.compareAndSet(false, true)) {
+                try {
+                    executorEnvio.execute(this::esvaziarFila);
+                } catch (RejectedExecutionException e) {
+                    // Aplicação encerrando
+                    enviando.set(false);
+                    desconectar();
+                }
+            }
+        }
+
+        private void esvaziarFila() {
+            try {
+                Mensagem mensagem;
+                while ((mensagem = fila.poll()) != null) {
+                    pendentes.decrementAndGet();
+                    if (mensagem.nome() == null) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    } else {
+                        emitter.send(SseEmitter.event().name(mensagem.nome()).data(mensagem.json(), MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Tela fechada ou conexão já encerrada
+                desconectar();
+                return;
+            } finally {
+                enviando.set(false);
+            }
+            // Mensagem enfileirada entre o último poll e a liberação do flag
+            if (!fila.isEmpty()) {
+                agendarEnvio();
+            }
+        }
+
+        private void desconectar() {
+            if (assinantes.remove(this)) {
+                fila.clear();
+                try {
+                    emitter.complete();
+                } catch (IllegalStateException e) {
+                    // já encerrado
+                }
+            }
+        }
+    }
+}
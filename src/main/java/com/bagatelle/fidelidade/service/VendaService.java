@@ -1,11 +1,19 @@
 package com.bagatelle.fidelidade.service;
 
+import com.bagatelle.fidelidade.dto.PaginaVendasDTO;
+import com.bagatelle.fidelidade.dto.SugestaoRecompraDTO;
+import com.bagatelle.fidelidade.dto.VendaDTO;
+import com.bagatelle.fidelidade.event.VendaRegistradaEvent;
 import com.bagatelle.fidelidade.model.Cliente;
 import com.bagatelle.fidelidade.model.ItemVenda;
 import com.bagatelle.fidelidade.model.Produto;
 import com.bagatelle.fidelidade.model.Venda;
 import com.bagatelle.fidelidade.repository.VendaRepository;
+import com.bagatelle.fidelidade.service.VersaoDadosService.Area;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,7 +21,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -24,9 +32,39 @@ public class VendaService {
     private final ClienteService clienteService;
     private final ProdutoService produtoService;
     private final CashbackService cashbackService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VersaoDadosService versaoDadosService;
 
-    public List<Venda> listarTodas() {
-        return vendaRepository.findAllOrdenadas();
+    private static final int TAMANHO_PAGINA = 20;
+
+    /**
+     * Lista as vendas mais recentes primeiro, uma página por vez.
+     * A página seguinte começa depois do cursor (dataVenda, id) da última venda exibida.
+     */
+    @Transactional(readOnly = true)
+    public PaginaVendasDTO listarPagina(LocalDateTime cursorDataVenda, Long cursorId) {
+        // Busca um registro a mais só para saber se existe próxima página
+        Limit limite = Limit.of(TAMANHO_PAGINA + 1);
+        List<VendaDTO> vendas = (cursorDataVenda == null || cursorId == null)
+                ? vendaRepository.buscarPrimeiraPagina(limite)
+                : vendaRepository.buscarPaginaApos(cursorDataVenda, cursorId, limite);
+
+        boolean temProxima = vendas.size() > TAMANHO_PAGINA;
+        if (temProxima) {
+            vendas = vendas.subList(0, TAMANHO_PAGINA);
+        }
+
+        if (vendas.isEmpty()) {
+            return PaginaVendasDTO.builder().build();
+        }
+
+        VendaDTO ultima = vendas.get(vendas.size() - 1);
+        return PaginaVendasDTO.builder()
+                .vendas(vendas)
+                .temProxima(temProxima)
+                .cursorDataVenda(ultima.getDataVenda())
+                .cursorId(ultima.getId())
+                .build();
     }
 
     public Venda buscarPorId(Long id) {
@@ -34,92 +72,82 @@ public class VendaService {
                 .orElseThrow(() -> new RuntimeException("Venda não encontrada com ID: " + id));
     }
 
+    /**
+     * Venda com cliente, itens e produtos, já convertida para a tela de detalhes.
+     */
+    @Transactional(readOnly = true)
+    public VendaDTO buscarDetalhes(Long id) {
+        return vendaRepository.buscarComItens(id)
+                .map(VendaDTO::fromEntity)
+                .orElseThrow(() -> new RuntimeException("Venda não encontrada com ID: " + id));
+    }
+
     public List<Venda> buscarPorCliente(Long clienteId) {
         return vendaRepository.buscarPorCliente(clienteId);
     }
 
     /**
      * Busca sugestões de recompra baseadas no volume dos produtos comprados.
-     * Lógica: Recupera vendas do último ano e verifica item a item se a previsão de término está próxima.
+     * Lógica: a previsão de término de cada item é gravada no momento da venda,
+     * então basta buscar os itens cuja previsão cai na janela de recompra.
      */
-    public List<Venda> buscarSugestoesRecompraDinamica() {
-        LocalDateTime hoje = LocalDateTime.now();
-        // Busca vendas de até 1 ano atrás para analisar (pode ajustar conforme necessidade)
-        LocalDateTime umAnoAtras = hoje.minusYears(1);
-        
-        // método que busca por intervalo
-        List<Venda> vendasRecentes = vendaRepository.buscarVendasEntreDatas(umAnoAtras, hoje);
-
-        // Filtra apenas as vendas que têm produtos "vencendo" agora
-        return vendasRecentes.stream()
-                .filter(venda -> isHoraDeRecomprar(venda))
-                .collect(Collectors.toList()); // ou .toList() se estiver no Java 16+
+    @Transactional(readOnly = true)
+    public List<VendaDTO> buscarSugestoesRecompraDinamica() {
+        JanelaRecompra janela = JanelaRecompra.atual();
+        return vendaRepository.buscarSugestoesRecompra(janela.dataMinimaVenda(), janela.inicio(), janela.fim())
+                .stream()
+                .map(VendaDTO::fromEntity)
+                .toList();
     }
 
-    private boolean isHoraDeRecomprar(Venda venda) {
-        LocalDate dataVenda = venda.getDataVenda().toLocalDate();
-        LocalDate hoje = LocalDate.now();
-
-        // Verifica cada item da venda
-        for (ItemVenda item : venda.getItens()) {
-            Produto produto = item.getProduto();
-            Integer volumeMl = produto.getVolumeNumerico();
-            
-            // Calcula a duração estimada em dias
-            long diasDuracao = calcularDuracaoEstimada(volumeMl);
-            
-            // Multiplica pela quantidade comprada (ex: comprou 2 frascos, dura o dobro)
-            diasDuracao = diasDuracao * item.getQuantidade();
-
-            LocalDate dataPrevisaoTermino = dataVenda.plusDays(diasDuracao);
-
-            // Lógica da Sugestão:
-            // Sugerimos recompra se a data de término prevista for nos próximos 15 dias
-            // OU se já passou até 30 dias da data prevista (cliente atrasado)
-            LocalDate inicioJanela = hoje.minusDays(30); 
-            LocalDate fimJanela = hoje.plusDays(15);
-
-            if (dataPrevisaoTermino.isAfter(inicioJanela) && dataPrevisaoTermino.isBefore(fimJanela)) {
-                return true; // Encontrou pelo menos um produto nessa venda que precisa de reposição
-            }
-        }
-        return false;
+    @Transactional(readOnly = true)
+    public long contarSugestoesRecompra() {
+        JanelaRecompra janela = JanelaRecompra.atual();
+        return vendaRepository.contarSugestoesRecompra(janela.dataMinimaVenda(), janela.inicio(), janela.fim());
     }
 
-    private long calcularDuracaoEstimada(Integer volumeMl) {
-        if (volumeMl <= 0) return 90; // Padrão de 3 meses se não conseguir ler o volume
-
-        // LÓGICA DE NEGÓCIO:
-        // Baseado no exemplo: 120ml dura 3 meses (90 dias).
-        // Fator = 90 / 120 = 0.75 dias por ml.
-        
-        // Podemos criar faixas para ser mais realista
-        
-        if (volumeMl <= 30) return 30;  // 30ml dura ~1 mês
-        if (volumeMl <= 50) return 60;  // 50ml dura ~2 meses
-        if (volumeMl <= 100) return 90; // 100ml dura ~3 meses
-        if (volumeMl <= 150) return 120; // 120-150ml dura ~4 meses
-        
-        return 150; // Frascos gigantes (200ml+)
+    @Transactional(readOnly = true)
+    public List<SugestaoRecompraDTO> buscarPreviaSugestoesRecompra(int limite) {
+        JanelaRecompra janela = JanelaRecompra.atual();
+        return vendaRepository.buscarPreviaSugestoesRecompra(janela.dataMinimaVenda(), janela.inicio(), janela.fim(),
+                Limit.of(limite));
+    }
+
+    /**
+     * Sugerimos recompra se a data de término prevista for nos próximos 15 dias
+     * OU se já passou até 30 dias da data prevista (cliente atrasado).
+     * Considera apenas vendas de até 1 ano atrás.
+     */
+    private record JanelaRecompra(LocalDateTime dataMinimaVenda, LocalDate inicio, LocalDate fim) {
+
+        static JanelaRecompra atual() {
+            LocalDate hoje = LocalDate.now();
+            return new JanelaRecompra(LocalDateTime.now().minusYears(1), hoje.minusDays(30), hoje.plusDays(15));
+        }
     }
 
     /**
      * Registra uma nova venda com os itens fornecidos.
      * Valida o cashback utilizado e gera novo cashback automaticamente.
+     * Os produtos de todos os itens são carregados numa única consulta.
      */
+    @Timed(value = "fidelidade.venda.registro", description = "Registro de venda (checkout)", histogram = true)
     public Venda registrarVenda(Long clienteId, List<ItemVenda> itens, BigDecimal valorCashbackUsado) {
         if (itens == null || itens.isEmpty()) {
             throw new RuntimeException("A venda deve conter pelo menos um item");
         }
 
-        // Busca o cliente
-        Cliente cliente = clienteService.buscarPorId(clienteId);
-
-        // Valida o cashback a ser utilizado
         if (valorCashbackUsado == null) {
             valorCashbackUsado = BigDecimal.ZERO;
         }
-        validarCashbackUsado(cliente, valorCashbackUsado, itens);
+
+        // Busca o cliente
+        Cliente cliente = clienteService.buscarPorId(clienteId);
+
+        // Busca todos os produtos da venda de uma vez
+        Map<Long, Produto> produtos = produtoService.buscarPorIds(itens.stream()
+                .map(item -> item.getProduto().getId())
+                .toList());
 
         // Cria a venda
         Venda venda = Venda.builder()
@@ -131,70 +159,62 @@ public class VendaService {
         // Calcula o valor total dos itens
         BigDecimal valorTotal = BigDecimal.ZERO;
         for (ItemVenda item : itens) {
-            Produto produto = produtoService.buscarPorId(item.getProduto().getId());
+            Produto produto = produtos.get(item.getProduto().getId());
+
+            if (item.getQuantidade() == null || item.getQuantidade() < 1) {
+                throw new RuntimeException("Quantidade inválida para o produto: " + produto.getNomePerfume());
+            }
+
+            item.setProduto(produto);
             item.setPrecoUnitario(produto.getPrecoVenda());
             item.setVenda(venda);
+            item.setDataVenda(venda.getDataVenda());
+            item.atualizarPrevisaoTermino(venda.getDataVenda().toLocalDate());
             valorTotal = valorTotal.add(item.calcularSubtotal());
         }
 
         venda.setValorTotal(valorTotal);
         venda.setItens(itens);
 
-        // Valida se o cashback usado não é maior que o valor total
-        if (valorCashbackUsado.compareTo(valorTotal) > 0) {
-            throw new RuntimeException("Valor de cashback usado não pode ser maior que o valor total da compra");
-        }
+        // Valida o cashback a ser utilizado (o saldo é conferido uma única vez, ao debitar)
+        validarCashbackUsado(valorCashbackUsado, valorTotal);
 
         // Utiliza o cashback (se houver)
         if (valorCashbackUsado.compareTo(BigDecimal.ZERO) > 0) {
             cashbackService.utilizarCashback(cliente, valorCashbackUsado);
         }
 
-        // Salva a venda
+        // Salva a venda (itens inseridos em lote no flush)
         venda = vendaRepository.save(venda);
 
-        // Gera cashback de 5% do valor final
-        cashbackService.gerarCashback(venda);
+        // O cashback de 5% é gerado em lote fora do checkout (outbox + GeradorCashbackJob)
+        cashbackService.agendarGeracaoCashback(venda);
+
+        eventPublisher.publishEvent(new VendaRegistradaEvent(venda.getId(), cliente.getId()));
+        versaoDadosService.registrarAlteracao(Area.VENDAS);
 
         return venda;
     }
 
     /**
-     * Valida se o cashback a ser utilizado está dentro dos limites permitidos.
+     * Valida se o cashback a ser utilizado está dentro dos limites da compra.
+     * O saldo do cliente é validado por CashbackService.utilizarCashback.
      */
-    public void validarCashbackUsado(Cliente cliente, BigDecimal valorCashbackUsado, List<ItemVenda> itens) {
+    public void validarCashbackUsado(BigDecimal valorCashbackUsado, BigDecimal valorTotal) {
         if (valorCashbackUsado.compareTo(BigDecimal.ZERO) < 0) {
             throw new RuntimeException("Valor de cashback não pode ser negativo");
         }
 
-        if (valorCashbackUsado.compareTo(BigDecimal.ZERO) == 0) {
-            return; // Não há cashback a validar
-        }
-
-        // Calcula o valor total dos itens
-        BigDecimal valorTotal = itens.stream()
-                .map(ItemVenda::calcularSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
         // Valida se o cashback usado não é maior que o valor total
         if (valorCashbackUsado.compareTo(valorTotal) > 0) {
             throw new RuntimeException("Valor de cashback usado não pode ser maior que o valor total da compra");
         }
-
-        // Valida se o cliente tem saldo suficiente
-        BigDecimal saldoDisponivel = cashbackService.calcularSaldoDisponivel(cliente);
-        if (valorCashbackUsado.compareTo(saldoDisponivel) > 0) {
-            throw new RuntimeException(
-                    String.format("Saldo de cashback insuficiente. Disponível: R$ %.2f", saldoDisponivel)
-            );
-        }
     }
 
     /**
      * Calcula o saldo de cashback disponível do cliente.
      */
     public BigDecimal calcularSaldoDisponivel(Long clienteId) {
-        Cliente cliente = clienteService.buscarPorId(clienteId);
-        return cashbackService.calcularSaldoDisponivel(cliente);
+        return clienteService.consultarSaldoCashback(clienteId).getSaldoCashback();
     }
 }
@@ -0,0 +1,74 @@
+package com.bagatelle.fidelidade.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de versão dos dados exibidos nas telas, incrementados pelos serviços a cada escrita.
+ * O cache de páginas (CachePaginasFilter) usa as versões como chave e como ETag.
+ *
+ * A versão só muda depois do commit: quem lê a versão antes de consultar o banco
+ * nunca enxerga dados mais antigos que ela. Os contadores são locais à instância.
+ */
+@Service
+public class VersaoDadosService {
+
+    public enum Area {
+        CLIENTES,
+        CATALOGO,
+        VENDAS,
+        CASHBACK
+    }
+
+    private final Map<Area, AtomicLong> versoes = new EnumMap<>(Area.class);
+    private final Map<Area, Instant> alteracoes = new ConcurrentHashMap<>();
+
+    public VersaoDadosService() {
+        Instant inicio = Instant.now();
+        for (Area area : Area.values()) {
+            versoes.put(area, new AtomicLong());
+            alteracoes.put(area, inicio);
+        }
+    }
+
+    /**
+     * Registra uma escrita nas áreas informadas. Dentro de uma transação, vale a partir do commit
+     * (e é descartada no rollback); fora dela, vale na hora.
+     */
+    public void registrarAlteracao(Area... areas) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    incrementar(areas);
+                }
+            });
+        } else {
+            incrementar(areas);
+        }
+    }
+
+    public long versao(Area area) {
+        return versoes.get(area).get();
+    }
+
+    public Instant alteradoEm(Area area) {
+        return alteracoes.get(area);
+    }
+
+    private void incrementar(Area... areas) {
+        Instant agora = Instant.now();
+        for (Area area : areas) {
+            // Data antes da versão: quem vê a versão nova vê também a data dela
+            alteracoes.put(area, agora);
+            versoes.get(area).incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.bagatelle.fidelidade.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+
+/**
+ * Escreve CSV (separador vírgula, ponto decimal, datas ISO) direto no destino, registro a registro.
+ * Campos com vírgula, aspas ou quebra de linha vão entre aspas.
+ * Colunas timestamp são lidas no calendário informado (o mesmo com que o Hibernate grava).
+ */
+public class EscritorCsv {
+
+    private static final DateTimeFormatter FORMATO_DATA_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Writer destino;
+    private final Calendar calendario;
+
+    public EscritorCsv(Writer destino, Calendar calendario) {
+        this.destino = destino;
+        this.calendario = calendario;
+    }
+
+    public void escreverLinha(String... campos) throws IOException {
+        for (int i = 0; i < campos.length; i++) {
+            if (i > 0) {
+                destino.write(',');
+            }
+            escreverCampo(campos[i]);
+        }
+        destino.write("\r\n");
+    }
+
+    /**
+     * Escreve a linha atual do ResultSet, todas as colunas na ordem da consulta.
+     */
+    public void escreverRegistro(ResultSet rs) throws SQLException, IOException {
+        ResultSetMetaData metadados = rs.getMetaData();
+        int colunas = metadados.getColumnCount();
+        for (int i = 1; i <= colunas; i++) {
+            if (i > 1) {
+                destino.write(',');
+            }
+            Object valor = metadados.getColumnType(i) == Types.TIMESTAMP
+                    ? rs.getTimestamp(i, calendario)
+                    : rs.getObject(i);
+            escreverCampo(formatar(valor));
+        }
+        destino.write("\r\n");
+    }
+
+    public void flush() throws IOException {
+        destino.flush();
+    }
+
+    private void escreverCampo(String campo) throws IOException {
+        if (campo == null) {
+            return;
+        }
+        boolean precisaAspas = campo.indexOf(',') >= 0 || campo.indexOf('"') >= 0
+                || campo.indexOf('\n') >= 0 || campo.indexOf('\r') >= 0;
+        if (precisaAspas) {
+            destino.write('"');
+            destino.write(campo.replace("\"", "\"\""));
+            destino.write('"');
+        } else {
+            destino.write(campo);
+        }
+    }
+
+    private static String formatar(Object valor) {
+        if (valor == null) {
+            return null;
+        }
+        if (valor instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().format(FORMATO_DATA_HORA);
+        }
+        if (valor instanceof java.sql.Date data) {
+            return data.toLocalDate().toString();
+        }
+        if (valor instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return valor.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package com.bagatelle.fidelidade.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leitor de CSV em fluxo: mantém só o registro atual em memória, então serve para arquivos
+ * de qualquer tamanho. A primeira linha é o cabeçalho; o separador (vírgula ou ponto e vírgula,
+ * o padrão do Excel em português) é detectado por ela. Aceita campos entre aspas, inclusive
+ * com quebras de linha, e aspas escapadas ("").
+ * Os nomes das colunas são comparados sem acentos, maiúsculas, espaços ou sublinhados.
+ */
+public class LeitorCsv implements Closeable {
+
+    private final BufferedReader reader;
+    private final char separador;
+    private final Map<String, Integer> colunas = new HashMap<>();
+
+    private List<String> registro = List.of();
+    private long linhaAtual;
+    private long linhaRegistro;
+
+    public LeitorCsv(Reader reader) throws IOException {
+        this.reader = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+
+        String cabecalho = this.reader.readLine();
+        if (cabecalho == null) {
+            throw new IllegalArgumentException("Arquivo CSV vazio");
+        }
+        linhaAtual = 1;
+        // BOM gravado pelo Excel no início de arquivos UTF-8
+        if (cabecalho.startsWith("\uFEFF")) {
+            cabecalho = cabecalho.substring(1);
+        }
+
+        separador = cabecalho.indexOf(';') >= 0 ? ';' : ',';
+        List<String> nomes = separar(cabecalho);
+        for (int i = 0; i < nomes.size(); i++) {
+            colunas.putIfAbsent(nomeColuna(nomes.get(i)), i);
+        }
+    }
+
+    /**
+     * Avança para o próximo registro, pulando linhas em branco. Retorna false no fim do arquivo.
+     */
+    public boolean proximo() throws IOException {
+        String linha;
+        do {
+            linha = reader.readLine();
+            if (linha == null) {
+                registro = List.of();
+                return false;
+            }
+            linhaAtual++;
+        } while (linha.isBlank());
+
+        linhaRegistro = linhaAtual;
+        registro = separar(linha);
+        return true;
+    }
+
+    /**
+     * Número da linha do arquivo onde começa o registro atual (o cabeçalho é a linha 1).
+     */
+    public long getLinha() {
+        return linhaRegistro;
+    }
+
+    public boolean temColuna(String... nomes) {
+        return indice(nomes) >= 0;
+    }
+
+    /**
+     * Valor da primeira coluna encontrada entre os nomes informados, sem espaços nas pontas.
+     * Retorna null se a coluna não existir ou estiver vazia.
+     */
+    public String valor(String... nomes) {
+        int indice = indice(nomes);
+        if (indice < 0 || indice >= registro.size()) {
+            return null;
+        }
+        String valor = registro.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int indice(String... nomes) {
+        for (String nome : nomes) {
+            Integer indice = colunas.get(nomeColuna(nome));
+            if (indice != null) {
+                return indice;
+            }
+        }
+        return -1;
+    }
+
+    private static String nomeColuna(String nome) {
+        return NormalizadorTexto.normalizar(nome).replaceAll("[\\s_\\-\"]", "");
+    }
+
+    // Separa os campos de um registro; campos entre aspas podem continuar nas linhas seguintes
+    private List<String> separar(String linha) throws IOException {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+        int i = 0;
+
+        while (true) {
+            if (i >= linha.length()) {
+                if (!entreAspas) {
+                    break;
+                }
+                String continuacao = reader.readLine();
+                if (continuacao == null) {
+                    throw new IllegalArgumentException("Aspas não fechadas no registro da linha " + linhaRegistro);
+                }
+                linhaAtual++;
+                campo.append('\n');
+                linha = continuacao;
+                i = 0;
+                continue;
+            }
+
+            char c = linha.charAt(i++);
+            if (entreAspas) {
+                if (c == '"') {
+                    if (i < linha.length() && linha.charAt(i) == '"') {
+                        campo.append('"');
+                        i++;
+                    } else {
+                        entreAspas = false;
+                    }
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+}
@@ -0,0 +1,44 @@
+package com.bagatelle.fidelidade.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normaliza textos para busca: minúsculas e sem acentos ("Ânge" vira "ange").
+ * O mesmo formato é gravado nas colunas de busca e aplicado ao termo digitado.
+ */
+public final class NormalizadorTexto {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+
+    private NormalizadorTexto() {
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = MARCAS_DIACRITICAS
+                .matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+                .replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT).trim();
+    }
+
+    /**
+     * Junta e normaliza várias partes num único texto de busca.
+     */
+    public static String textoBusca(String... partes) {
+        StringBuilder sb = new StringBuilder();
+        for (String parte : partes) {
+            if (parte == null || parte.isBlank()) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(normalizar(parte));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,23 @@
+-- Idempotência da sincronização do terminal pela chave sozinha. Na V6 o índice único passou a
+-- (chave_idempotencia, data_venda), que é único por instante, não por mês: duas sincronizações
+-- concorrentes da mesma fila sem data_venda (preenchida com o horário do servidor) gravariam a
+-- venda duas vezes. A tabela abaixo não é particionada e é gravada na mesma transação da venda
+-- (SincronizacaoVendasService); a consulta das chaves já recebidas também passa a ser feita nela.
+--
+-- A V6 também removeu as chaves estrangeiras para vendas (itens_venda, registros_cashback,
+-- eventos_venda), para que as partições possam ser arquivadas. A integridade é conferida pelo
+-- ManutencaoParticoesJob, que registra linhas recentes sem venda correspondente.
+
+CREATE TABLE IF NOT EXISTS chaves_idempotencia (
+    chave     VARCHAR(64)  NOT NULL,
+    venda_id  BIGINT       NOT NULL,
+    CONSTRAINT pk_chaves_idempotencia PRIMARY KEY (chave)
+);
+
+-- Chaves já recebidas (partições anexadas); havendo repetição, vale a primeira venda
+INSERT INTO chaves_idempotencia (chave, venda_id)
+SELECT DISTINCT ON (chave_idempotencia) chave_idempotencia, id
+FROM vendas
+WHERE chave_idempotencia IS NOT NULL
+ORDER BY chave_idempotencia, id
+ON CONFLICT (chave) DO NOTHING;
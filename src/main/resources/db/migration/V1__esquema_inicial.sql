@@ -0,0 +1,108 @@
+-- Esquema inicial, equivalente ao que o Hibernate gerava com ddl-auto=update.
+-- Idempotente: roda tanto em banco vazio quanto em bancos já criados pelo Hibernate
+-- (spring.flyway.baseline-version=0 faz esta migração rodar também nesses bancos).
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- ========== Tabelas ==========
+
+CREATE TABLE IF NOT EXISTS clientes (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nome_completo   VARCHAR(150)   NOT NULL,
+    cpf             VARCHAR(11)    NOT NULL,
+    telefone        VARCHAR(11)    NOT NULL,
+    email           VARCHAR(150)   NOT NULL,
+    saldo_cashback  NUMERIC(10, 2) NOT NULL,
+    versao          BIGINT         NOT NULL DEFAULT 0,
+    texto_busca     VARCHAR(200),
+    CONSTRAINT uk_clientes_cpf UNIQUE (cpf)
+);
+
+CREATE TABLE IF NOT EXISTS produtos (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nome_perfume    VARCHAR(150)   NOT NULL,
+    marca           VARCHAR(100)   NOT NULL,
+    volume          VARCHAR(20)    NOT NULL,
+    preco_venda     NUMERIC(10, 2) NOT NULL,
+    texto_busca     VARCHAR(300)
+);
+
+CREATE TABLE IF NOT EXISTS vendas (
+    id                    BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cliente_id            BIGINT         NOT NULL REFERENCES clientes (id),
+    data_venda            TIMESTAMP(6)   NOT NULL,
+    valor_total           NUMERIC(10, 2) NOT NULL,
+    valor_cashback_usado  NUMERIC(10, 2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS itens_venda (
+    id                     BIGINT PRIMARY KEY,
+    venda_id               BIGINT         NOT NULL REFERENCES vendas (id),
+    produto_id             BIGINT         NOT NULL REFERENCES produtos (id),
+    quantidade             INTEGER        NOT NULL,
+    preco_unitario         NUMERIC(10, 2) NOT NULL,
+    data_previsao_termino  DATE
+);
+
+CREATE TABLE IF NOT EXISTS registros_cashback (
+    id               BIGINT PRIMARY KEY,
+    cliente_id       BIGINT         NOT NULL REFERENCES clientes (id),
+    valor            NUMERIC(10, 2) NOT NULL,
+    data_geracao     DATE           NOT NULL,
+    data_expiracao   DATE           NOT NULL,
+    utilizado        BOOLEAN        NOT NULL,
+    expirado         BOOLEAN        NOT NULL DEFAULT FALSE,
+    valor_utilizado  NUMERIC(10, 2),
+    venda_id         BIGINT REFERENCES vendas (id)
+);
+
+-- ========== Colunas adicionadas depois da primeira versão ==========
+-- (bancos criados pelo Hibernate antes delas existirem)
+
+ALTER TABLE clientes ADD COLUMN IF NOT EXISTS versao BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE clientes ADD COLUMN IF NOT EXISTS texto_busca VARCHAR(200);
+ALTER TABLE produtos ADD COLUMN IF NOT EXISTS texto_busca VARCHAR(300);
+ALTER TABLE itens_venda ADD COLUMN IF NOT EXISTS data_previsao_termino DATE;
+ALTER TABLE registros_cashback ADD COLUMN IF NOT EXISTS expirado BOOLEAN NOT NULL DEFAULT FALSE;
+
+UPDATE clientes SET versao = 0 WHERE versao IS NULL;
+UPDATE registros_cashback SET expirado = FALSE WHERE expirado IS NULL;
+
+-- Texto de busca no mesmo formato de NormalizadorTexto: minúsculas e sem acentos
+UPDATE clientes
+SET texto_busca = translate(lower(nome_completo || ' ' || cpf),
+                            'áàâãäéèêëíìîïóòôõöúùûüçñ', 'aaaaaeeeeiiiiooooouuuucn')
+WHERE texto_busca IS NULL;
+
+UPDATE produtos
+SET texto_busca = translate(lower(nome_perfume || ' ' || marca),
+                            'áàâãäéèêëíìîïóòôõöúùûüçñ', 'aaaaaeeeeiiiiooooouuuucn')
+WHERE texto_busca IS NULL;
+
+-- ========== Sequences (inserts em lote de itens e registros de cashback) ==========
+
+CREATE SEQUENCE IF NOT EXISTS itens_venda_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS registros_cashback_seq START WITH 1 INCREMENT BY 50;
+
+-- Começa depois dos IDs já existentes (tabelas que usavam IDENTITY)
+SELECT setval('itens_venda_seq',
+              GREATEST((SELECT COALESCE(MAX(id), 0) FROM itens_venda),
+                       (SELECT last_value FROM itens_venda_seq)));
+
+SELECT setval('registros_cashback_seq',
+              GREATEST((SELECT COALESCE(MAX(id), 0) FROM registros_cashback),
+                       (SELECT last_value FROM registros_cashback_seq)));
+
+-- ========== Índices já usados pela aplicação ==========
+
+CREATE INDEX IF NOT EXISTS idx_itens_venda_previsao_termino
+    ON itens_venda (data_previsao_termino);
+
+CREATE INDEX IF NOT EXISTS idx_vendas_data_venda_id
+    ON vendas (data_venda, id);
+
+CREATE INDEX IF NOT EXISTS idx_clientes_texto_busca_trgm
+    ON clientes USING gin (texto_busca gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_produtos_texto_busca_trgm
+    ON produtos USING gin (texto_busca gin_trgm_ops);
@@ -0,0 +1,23 @@
+-- Índices para os predicados de RegistroCashbackRepository e VendaRepository.
+-- A lista de índices obrigatórios fica em VerificadorIndices (checada na inicialização).
+
+-- Extrato e FIFO do cliente: cliente_id = ? AND utilizado = false AND data_expiracao > ?
+CREATE INDEX IF NOT EXISTS idx_registros_cashback_cliente_utilizado_expiracao
+    ON registros_cashback (cliente_id, utilizado, data_expiracao);
+
+-- Dashboard de cashback expirando e varredura de expiração: só registros em aberto
+CREATE INDEX IF NOT EXISTS idx_registros_cashback_expiracao_aberto
+    ON registros_cashback (data_expiracao)
+    WHERE utilizado = FALSE;
+
+-- Histórico de compras do cliente: cliente_id = ? ORDER BY data_venda DESC
+CREATE INDEX IF NOT EXISTS idx_vendas_cliente_data_venda
+    ON vendas (cliente_id, data_venda);
+
+-- Carga dos itens de uma página de vendas (venda_id IN (...))
+CREATE INDEX IF NOT EXISTS idx_itens_venda_venda
+    ON itens_venda (venda_id);
+
+-- Recálculo de previsão de término quando o volume de um produto muda
+CREATE INDEX IF NOT EXISTS idx_itens_venda_produto
+    ON itens_venda (produto_id);
@@ -0,0 +1,20 @@
+-- Volume interpretado em ml e duração do frasco gravados no produto (ver Produto e ModeloDuracao).
+-- Os valores são preenchidos na inicialização por ProdutoService.reconciliarDuracoes.
+
+ALTER TABLE produtos ADD COLUMN IF NOT EXISTS volume_ml INTEGER;
+ALTER TABLE produtos ADD COLUMN IF NOT EXISTS duracao_dias INTEGER;
+ALTER TABLE produtos ADD COLUMN IF NOT EXISTS duracao_estimada_dias INTEGER;
+
+-- Faixas de duração por volume: marca nula vale para todas, volume_maximo_ml nulo não tem limite
+CREATE TABLE IF NOT EXISTS faixas_duracao (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    marca             VARCHAR(100),
+    volume_maximo_ml  INTEGER,
+    dias              INTEGER        NOT NULL
+);
+
+-- Faixas originais do sistema (120ml dura ~3 meses)
+INSERT INTO faixas_duracao (marca, volume_maximo_ml, dias)
+SELECT NULL, f.volume_maximo_ml, f.dias
+FROM (VALUES (30, 30), (50, 60), (100, 90), (150, 120), (NULL::INTEGER, 150)) AS f (volume_maximo_ml, dias)
+WHERE NOT EXISTS (SELECT 1 FROM faixas_duracao);
@@ -0,0 +1,19 @@
+-- Outbox de vendas concluídas: o checkout só grava o evento e o GeradorCashbackJob
+-- gera o cashback em lote, fora da transação da venda.
+
+CREATE TABLE IF NOT EXISTS eventos_venda (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    venda_id       BIGINT         NOT NULL REFERENCES vendas (id),
+    criado_em      TIMESTAMP(6)   NOT NULL,
+    processado_em  TIMESTAMP(6),
+    CONSTRAINT uk_eventos_venda_venda UNIQUE (venda_id)
+);
+
+-- Fila de pendentes: WHERE processado_em IS NULL ORDER BY id
+CREATE INDEX IF NOT EXISTS idx_eventos_venda_pendentes
+    ON eventos_venda (id)
+    WHERE processado_em IS NULL;
+
+-- No máximo um registro de cashback por venda de origem (geração idempotente)
+CREATE UNIQUE INDEX IF NOT EXISTS uk_registros_cashback_venda
+    ON registros_cashback (venda_id);
@@ -0,0 +1,8 @@
+-- Chave de idempotência gerada pelo terminal (PDV) para cada venda feita sem conexão.
+-- Vendas registradas pela tela não têm chave; a sincronização em lote (SincronizacaoVendasService)
+-- usa o índice único para descartar vendas já recebidas quando o terminal reenvia a fila.
+
+ALTER TABLE vendas ADD COLUMN IF NOT EXISTS chave_idempotencia VARCHAR(64);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_vendas_chave_idempotencia
+    ON vendas (chave_idempotencia);
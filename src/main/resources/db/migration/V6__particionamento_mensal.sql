@@ -0,0 +1,185 @@
+-- Particionamento mensal das tabelas que só crescem: vendas e itens_venda por data_venda,
+-- registros_cashback por data_expiracao. As consultas dessas tabelas têm limite de data,
+-- então o PostgreSQL lê só as partições do período (partition pruning).
+-- As partições dos próximos meses são criadas por ManutencaoParticoesJob (criar_particao_mensal),
+-- que também desanexa as encerradas para o schema arquivo (arquivar_particao).
+--
+-- Em bancos com dados as tabelas são recriadas e os dados copiados: aplicar numa janela de manutenção.
+
+CREATE SCHEMA IF NOT EXISTS arquivo;
+
+-- ========== Funções de manutenção ==========
+
+-- Cria a partição do mês (tabela_AAAA_MM). Linhas do mês que caíram na partição padrão
+-- (datas fora das partições existentes) são movidas para ela. Não recria mês já arquivado.
+CREATE OR REPLACE FUNCTION criar_particao_mensal(tabela TEXT, mes DATE) RETURNS BOOLEAN
+LANGUAGE plpgsql AS $$
+DECLARE
+    inicio   DATE := CAST(date_trunc('month', mes) AS date);
+    fim      DATE := CAST(date_trunc('month', mes) + INTERVAL '1 month' AS date);
+    particao TEXT := tabela || '_' || to_char(mes, 'YYYY_MM');
+    coluna   TEXT;
+BEGIN
+    IF to_regclass(particao) IS NOT NULL OR to_regclass('arquivo.' || particao) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    SELECT a.attname INTO coluna
+    FROM pg_partitioned_table p
+    JOIN pg_attribute a ON a.attrelid = p.partrelid AND a.attnum = p.partattrs[0]
+    WHERE p.partrelid = CAST(tabela AS regclass);
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', particao, tabela);
+    EXECUTE format('WITH movidas AS (DELETE FROM %I WHERE %I >= %L AND %I < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM movidas',
+                   tabela || '_padrao', coluna, inicio, coluna, fim, particao);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   tabela, particao, inicio, fim);
+    RETURN TRUE;
+END;
+$$;
+
+-- Desanexa a partição do mês e a move para o schema arquivo. Com metodo_acesso (ex: columnar,
+-- da extensão citus_columnar, PostgreSQL 15+) a tabela arquivada é reescrita comprimida.
+CREATE OR REPLACE FUNCTION arquivar_particao(tabela TEXT, mes DATE, metodo_acesso TEXT) RETURNS BOOLEAN
+LANGUAGE plpgsql AS $$
+DECLARE
+    particao TEXT := tabela || '_' || to_char(mes, 'YYYY_MM');
+BEGIN
+    IF to_regclass(particao) IS NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', tabela, particao);
+    EXECUTE format('ALTER TABLE %I SET SCHEMA arquivo', particao);
+    IF COALESCE(metodo_acesso, '') <> '' THEN
+        EXECUTE format('ALTER TABLE arquivo.%I SET ACCESS METHOD %I', particao, metodo_acesso);
+    END IF;
+    RETURN TRUE;
+END;
+$$;
+
+-- ========== Tabelas particionadas ==========
+-- A chave primária (e os índices únicos) precisam incluir a coluna de partição.
+-- Sem chaves estrangeiras para vendas (itens_venda, registros_cashback e eventos_venda):
+-- a partição de vendas não poderia ser arquivada enquanto houvesse referências a ela.
+-- Os itens são gravados sempre junto com a venda (cascade em Venda.itens ou o lote da sincronização).
+
+ALTER TABLE vendas RENAME TO vendas_antiga;
+ALTER TABLE itens_venda RENAME TO itens_venda_antiga;
+ALTER TABLE registros_cashback RENAME TO registros_cashback_antiga;
+
+CREATE TABLE vendas (
+    id                    BIGINT         NOT NULL,
+    cliente_id            BIGINT         NOT NULL REFERENCES clientes (id),
+    data_venda            TIMESTAMP(6)   NOT NULL,
+    valor_total           NUMERIC(10, 2) NOT NULL,
+    valor_cashback_usado  NUMERIC(10, 2) NOT NULL,
+    chave_idempotencia    VARCHAR(64),
+    CONSTRAINT pk_vendas PRIMARY KEY (id, data_venda)
+) PARTITION BY RANGE (data_venda);
+
+-- data_venda repetida da venda: os itens ficam na partição do mesmo mês que a venda
+CREATE TABLE itens_venda (
+    id                     BIGINT         NOT NULL,
+    venda_id               BIGINT         NOT NULL,
+    data_venda             TIMESTAMP(6)   NOT NULL,
+    produto_id             BIGINT         NOT NULL REFERENCES produtos (id),
+    quantidade             INTEGER        NOT NULL,
+    preco_unitario         NUMERIC(10, 2) NOT NULL,
+    data_previsao_termino  DATE,
+    CONSTRAINT pk_itens_venda PRIMARY KEY (id, data_venda)
+) PARTITION BY RANGE (data_venda);
+
+CREATE TABLE registros_cashback (
+    id               BIGINT         NOT NULL,
+    cliente_id       BIGINT         NOT NULL REFERENCES clientes (id),
+    valor            NUMERIC(10, 2) NOT NULL,
+    data_geracao     DATE           NOT NULL,
+    data_expiracao   DATE           NOT NULL,
+    utilizado        BOOLEAN        NOT NULL,
+    expirado         BOOLEAN        NOT NULL DEFAULT FALSE,
+    valor_utilizado  NUMERIC(10, 2),
+    venda_id         BIGINT,
+    CONSTRAINT pk_registros_cashback PRIMARY KEY (id, data_expiracao)
+) PARTITION BY RANGE (data_expiracao);
+
+-- Datas sem partição (venda offline muito antiga, mês ainda não criado) caem na partição padrão
+CREATE TABLE vendas_padrao PARTITION OF vendas DEFAULT;
+CREATE TABLE itens_venda_padrao PARTITION OF itens_venda DEFAULT;
+CREATE TABLE registros_cashback_padrao PARTITION OF registros_cashback DEFAULT;
+
+-- Partições de todos os meses com dados até três meses à frente
+SELECT criar_particao_mensal(t.tabela, CAST(mes AS date))
+FROM (SELECT 'vendas' AS tabela UNION ALL SELECT 'itens_venda') t,
+     generate_series(date_trunc('month', LEAST(COALESCE((SELECT MIN(data_venda) FROM vendas_antiga), LOCALTIMESTAMP), LOCALTIMESTAMP)),
+                     date_trunc('month', LOCALTIMESTAMP) + INTERVAL '3 months',
+                     INTERVAL '1 month') AS mes;
+
+SELECT criar_particao_mensal('registros_cashback', CAST(mes AS date))
+FROM generate_series(date_trunc('month', CAST(LEAST(COALESCE((SELECT MIN(data_expiracao) FROM registros_cashback_antiga), CURRENT_DATE), CURRENT_DATE) AS timestamp)),
+                     date_trunc('month', GREATEST(CAST(COALESCE((SELECT MAX(data_expiracao) FROM registros_cashback_antiga), CURRENT_DATE) AS timestamp),
+                                                  LOCALTIMESTAMP + INTERVAL '3 months')),
+                     INTERVAL '1 month') AS mes;
+
+-- ========== Cópia dos dados ==========
+
+INSERT INTO vendas (id, cliente_id, data_venda, valor_total, valor_cashback_usado, chave_idempotencia)
+SELECT id, cliente_id, data_venda, valor_total, valor_cashback_usado, chave_idempotencia
+FROM vendas_antiga;
+
+INSERT INTO itens_venda (id, venda_id, data_venda, produto_id, quantidade, preco_unitario, data_previsao_termino)
+SELECT i.id, i.venda_id, v.data_venda, i.produto_id, i.quantidade, i.preco_unitario, i.data_previsao_termino
+FROM itens_venda_antiga i
+JOIN vendas_antiga v ON v.id = i.venda_id;
+
+INSERT INTO registros_cashback (id, cliente_id, valor, data_geracao, data_expiracao, utilizado, expirado,
+                                valor_utilizado, venda_id)
+SELECT id, cliente_id, valor, data_geracao, data_expiracao, utilizado, expirado, valor_utilizado, venda_id
+FROM registros_cashback_antiga;
+
+-- CASCADE remove também a chave estrangeira de eventos_venda para a tabela antiga
+DROP TABLE itens_venda_antiga, registros_cashback_antiga, vendas_antiga CASCADE;
+
+-- IDs de vendas por sequence (IDENTITY não é suportado em tabela particionada antes do PostgreSQL 17)
+CREATE SEQUENCE vendas_id_seq OWNED BY vendas.id;
+SELECT setval('vendas_id_seq', COALESCE(MAX(id), 0) + 1, false) FROM vendas;
+ALTER TABLE vendas ALTER COLUMN id SET DEFAULT nextval('vendas_id_seq');
+
+-- ========== Índices (criados em cada partição) ==========
+
+CREATE INDEX idx_vendas_data_venda_id
+    ON vendas (data_venda, id);
+
+CREATE INDEX idx_vendas_cliente_data_venda
+    ON vendas (cliente_id, data_venda);
+
+-- Único por mês: o reenvio da fila do terminal traz a mesma data_venda. A sincronização
+-- confere as chaves já recebidas antes de gravar (VendaRepository.buscarSincronizadas).
+CREATE UNIQUE INDEX uk_vendas_chave_idempotencia
+    ON vendas (chave_idempotencia, data_venda);
+
+CREATE INDEX idx_itens_venda_venda
+    ON itens_venda (venda_id);
+
+CREATE INDEX idx_itens_venda_produto
+    ON itens_venda (produto_id);
+
+CREATE INDEX idx_itens_venda_previsao_termino
+    ON itens_venda (data_previsao_termino);
+
+CREATE INDEX idx_registros_cashback_cliente_utilizado_expiracao
+    ON registros_cashback (cliente_id, utilizado, data_expiracao);
+
+CREATE INDEX idx_registros_cashback_expiracao_aberto
+    ON registros_cashback (data_expiracao)
+    WHERE utilizado = FALSE;
+
+-- Geração idempotente: o lote do outbox é travado (SKIP LOCKED) e marcado como processado
+-- na mesma transação; o índice impede um segundo registro para a venda na mesma data de expiração
+CREATE UNIQUE INDEX uk_registros_cashback_venda
+    ON registros_cashback (venda_id, data_expiracao);
+
+ANALYZE vendas;
+ANALYZE itens_venda;
+ANALYZE registros_cashback;
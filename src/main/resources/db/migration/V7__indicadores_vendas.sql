@@ -0,0 +1,59 @@
+-- Indicadores de vendas pré-agregados por dia (IndicadoresService): faturamento, ticket médio,
+-- cashback gerado/usado/expirado e vendas por produto. Semana e mês são somados dos dias,
+-- então dois anos de indicadores são ~730 linhas, em vez de varrer vendas e itens.
+-- Atualizados em lote pelo GeradorCashbackJob (vendas processadas do outbox) e pela
+-- ExpiracaoCashbackJob; reconstruídos por dia a partir das tabelas de origem.
+-- Ficam com o histórico inteiro: as partições arquivadas (V6) continuam nos indicadores.
+
+CREATE TABLE IF NOT EXISTS indicadores_diarios (
+    dia                DATE           NOT NULL,
+    quantidade_vendas  BIGINT         NOT NULL DEFAULT 0,
+    faturamento        NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    cashback_usado     NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    cashback_gerado    NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    cashback_expirado  NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    CONSTRAINT pk_indicadores_diarios PRIMARY KEY (dia)
+);
+
+-- Marca vem de produtos na consulta do ranking
+CREATE TABLE IF NOT EXISTS indicadores_produtos_diarios (
+    dia          DATE           NOT NULL,
+    produto_id   BIGINT         NOT NULL REFERENCES produtos (id),
+    quantidade   BIGINT         NOT NULL DEFAULT 0,
+    faturamento  NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    CONSTRAINT pk_indicadores_produtos_diarios PRIMARY KEY (dia, produto_id)
+);
+
+-- Reconstrução de um dia: itens pela data da venda sem varrer a partição do mês inteira
+CREATE INDEX IF NOT EXISTS idx_itens_venda_data_venda
+    ON itens_venda (data_venda);
+
+-- Carga inicial com os dados ainda não arquivados; vendas com cashback pendente
+-- no outbox entram quando o GeradorCashbackJob processar o evento
+INSERT INTO indicadores_diarios (dia, quantidade_vendas, faturamento, cashback_usado)
+SELECT CAST(v.data_venda AS date), COUNT(*), SUM(v.valor_total), SUM(v.valor_cashback_usado)
+FROM vendas v
+WHERE NOT EXISTS (SELECT 1 FROM eventos_venda e WHERE e.venda_id = v.id AND e.processado_em IS NULL)
+GROUP BY CAST(v.data_venda AS date);
+
+INSERT INTO indicadores_diarios (dia, cashback_gerado)
+SELECT data_geracao, SUM(valor)
+FROM registros_cashback
+GROUP BY data_geracao
+ON CONFLICT (dia) DO UPDATE SET cashback_gerado = EXCLUDED.cashback_gerado;
+
+INSERT INTO indicadores_diarios (dia, cashback_expirado)
+SELECT data_expiracao, SUM(valor - COALESCE(valor_utilizado, 0))
+FROM registros_cashback
+WHERE expirado = TRUE
+GROUP BY data_expiracao
+ON CONFLICT (dia) DO UPDATE SET cashback_expirado = EXCLUDED.cashback_expirado;
+
+INSERT INTO indicadores_produtos_diarios (dia, produto_id, quantidade, faturamento)
+SELECT CAST(i.data_venda AS date), i.produto_id, SUM(i.quantidade), SUM(i.quantidade * i.preco_unitario)
+FROM itens_venda i
+WHERE NOT EXISTS (SELECT 1 FROM eventos_venda e WHERE e.venda_id = i.venda_id AND e.processado_em IS NULL)
+GROUP BY CAST(i.data_venda AS date), i.produto_id;
+
+ANALYZE indicadores_diarios;
+ANALYZE indicadores_produtos_diarios;
@@ -0,0 +1,7 @@
+-- Falhas na geração de cashback por evento do outbox. Um evento que falha é tentado de novo
+-- nas próximas execuções do GeradorCashbackJob até fidelidade.cashback.geracao.max-tentativas;
+-- depois disso sai da fila (buscarPendentes) e fica contado em fidelidade.cashback.falhas,
+-- com o último erro, até ser corrigido e ter as tentativas zeradas.
+
+ALTER TABLE eventos_venda ADD COLUMN IF NOT EXISTS tentativas INT NOT NULL DEFAULT 0;
+ALTER TABLE eventos_venda ADD COLUMN IF NOT EXISTS ultimo_erro VARCHAR(1000);
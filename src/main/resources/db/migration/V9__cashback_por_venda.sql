@@ -0,0 +1,17 @@
+-- Um único registro de cashback por venda, garantido pelo banco. Até a V6 isso era o índice único
+-- em registros_cashback (venda_id); com a tabela particionada por data_expiracao o índice passou a
+-- incluir a data de expiração (dia do processamento + 90), e uma venda reprocessada em outro dia
+-- ganharia um segundo registro e um segundo crédito. A tabela abaixo não é particionada: a geração
+-- (CashbackService) grava a venda aqui na mesma transação dos registros.
+
+CREATE TABLE IF NOT EXISTS cashback_vendas (
+    venda_id  BIGINT  NOT NULL,
+    CONSTRAINT pk_cashback_vendas PRIMARY KEY (venda_id)
+);
+
+-- Vendas que já têm registro (partições anexadas; as arquivadas são de vendas antigas, já processadas)
+INSERT INTO cashback_vendas (venda_id)
+SELECT DISTINCT venda_id
+FROM registros_cashback
+WHERE venda_id IS NOT NULL
+ON CONFLICT (venda_id) DO NOTHING;
@@ -0,0 +1,94 @@
+// dashboard.js - Atualização do dashboard por push (Server-Sent Events em /dashboard/eventos)
+//
+// Ao conectar, o servidor envia o resumo completo ("resumo"); depois, só as diferenças
+// ("atualizacao"): contadores e as linhas que entraram ou saíram das prévias.
+
+(function () {
+    let estado = null;
+    let fonte = null;
+
+    function conectar() {
+        fonte = new EventSource('/dashboard/eventos');
+
+        fonte.addEventListener('resumo', function (e) {
+            const resumo = JSON.parse(e.data);
+            estado = {
+                atualizadoEm: resumo.atualizadoEm,
+                cashbacks: resumo.cashbacksExpirando,
+                sugestoes: resumo.sugestoesRecompra
+            };
+            exibir(resumo.totalCashbacksExpirando, resumo.totalSugestoesRecompra);
+        });
+
+        fonte.addEventListener('atualizacao', function (e) {
+            const atualizacao = JSON.parse(e.data);
+            if (estado === null || atualizacao.anteriorEm !== estado.atualizadoEm) {
+                // Fora de sequência: reconecta para receber o resumo completo
+                fonte.close();
+                conectar();
+                return;
+            }
+
+            estado.atualizadoEm = atualizacao.atualizadoEm;
+            estado.cashbacks = estado.cashbacks
+                .filter(c => !atualizacao.cashbacksRemovidos.includes(c.registroId))
+                .concat(atualizacao.cashbacksAdicionados)
+                .sort((a, b) => a.dataExpiracao.localeCompare(b.dataExpiracao) || a.registroId - b.registroId);
+            estado.sugestoes = estado.sugestoes
+                .filter(s => !atualizacao.sugestoesRemovidas.includes(s.vendaId))
+                .concat(atualizacao.sugestoesAdicionadas)
+                .sort((a, b) => b.dataVenda.localeCompare(a.dataVenda) || b.vendaId - a.vendaId);
+            exibir(atualizacao.totalCashbacksExpirando, atualizacao.totalSugestoesRecompra);
+        });
+        // Em caso de erro o EventSource reconecta sozinho e recebe um novo "resumo"
+    }
+
+    function exibir(totalCashbacks, totalSugestoes) {
+        document.getElementById('totalCashbacksExpirando').textContent = totalCashbacks;
+        document.getElementById('totalSugestoesRecompra').textContent = totalSugestoes;
+
+        const atualizadoEm = document.getElementById('atualizadoEm');
+        if (atualizadoEm && estado.atualizadoEm) {
+            atualizadoEm.textContent = 'Atualizado às ' + estado.atualizadoEm.substring(11, 19);
+        }
+
+        preencherLista('cashbacksExpirando', estado.cashbacks, c => [
+            c.nomeCliente,
+            'R$ ' + formatarValor(c.valor) + ' até ' + formatarData(c.dataExpiracao).substring(0, 5)
+        ]);
+        preencherLista('sugestoesRecompra', estado.sugestoes, s => [
+            s.nomeCliente,
+            'Compra em ' + formatarData(s.dataVenda.substring(0, 10))
+        ]);
+    }
+
+    function preencherLista(id, itens, colunas) {
+        const lista = document.getElementById(id);
+        lista.replaceChildren(...itens.map(item => {
+            const [texto, detalhe] = colunas(item);
+            const li = document.createElement('li');
+            li.className = 'list-group-item d-flex justify-content-between px-0';
+            const nome = document.createElement('span');
+            nome.textContent = texto;
+            const info = document.createElement('span');
+            info.className = 'text-muted';
+            info.textContent = detalhe;
+            li.append(nome, info);
+            return li;
+        }));
+    }
+
+    // "2025-03-01" -> "01/03/2025"
+    function formatarData(data) {
+        const [ano, mes, dia] = data.split('-');
+        return dia + '/' + mes + '/' + ano;
+    }
+
+    function formatarValor(valor) {
+        return Number(valor).toLocaleString('en-US', { minimumFractionDigits: 2, maximumFractionDigits: 2 });
+    }
+
+    if (window.EventSource) {
+        conectar();
+    }
+})();
@@ -17,7 +17,7 @@ function configurarBuscaCliente() {
         const termo = $(this).val().trim();
         clearTimeout(timeout);
 
-        if (termo.length < 2) {
+        if (termo.length < 3) {
             $('#resultadosCliente').empty();
             return;
         }
@@ -88,7 +88,7 @@ function configurarBuscaProduto() {
         const termo = $(this).val().trim();
         clearTimeout(timeout);
 
-        if (termo.length < 2) {
+        if (termo.length < 3) {
             $('#resultadosProduto').empty();
             return;
         }